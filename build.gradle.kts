@@ -3,6 +3,7 @@ plugins {
     id("org.springframework.boot") version "3.5.5"
     id("io.spring.dependency-management") version "1.1.7"
     id("jacoco")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "edu.trincoll"
@@ -14,9 +15,12 @@ repositories {
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("org.springframework.boot:spring-boot-starter-webflux")
     implementation("org.springframework.boot:spring-boot-starter-validation")
+    implementation("org.roaringbitmap:RoaringBitmap:1.3.0")
     
     testImplementation("org.springframework.boot:spring-boot-starter-test")
+    testImplementation("io.projectreactor:reactor-test")
     testImplementation("org.assertj:assertj-core")
     testImplementation("org.mockito:mockito-core")
 }
@@ -27,7 +31,9 @@ val isJacocoReportRequested =
     }
 
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("load")
+    }
     jvmArgs("-XX:+EnableDynamicAgentLoading", "-Xshare:off")
     if (isJacocoReportRequested) {
         // When generating JaCoCo report explicitly, allow tests to fail but still produce coverage
@@ -36,6 +42,34 @@ tasks.test {
     finalizedBy(tasks.jacocoTestReport)
 }
 
+// Slow-client load test comparing platform and virtual request threads: ./gradlew loadTest
+val loadTest by tasks.registering(Test::class) {
+    description = "Runs the load tests tagged 'load'."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("load")
+    }
+    testLogging.showStandardStreams = true
+}
+
+// Benchmarks live in src/jmh. Narrow a run from the command line, for example
+// gradle jmh -Pjmh.includes=RepositoryFinderBenchmark -Pjmh.params=size=10000,100000;implementation=memory
+// Add -Pjmh.profilers=gc to report bytes allocated per operation.
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    jvmArgs.set(listOf("-Xmx" + (findProperty("jmh.heap") ?: "8g")))
+    findProperty("jmh.includes")?.let { includes.set(it.toString().split(",")) }
+    findProperty("jmh.profilers")?.let { profilers.set(it.toString().split(",")) }
+    findProperty("jmh.params")?.toString()?.split(";")?.forEach { param ->
+        val (name, values) = param.split("=", limit = 2)
+        benchmarkParameters.put(name, objects.listProperty<String>().value(values.split(",")))
+    }
+}
+
 tasks.jacocoTestReport {
     dependsOn(tasks.test)
     reports {
@@ -0,0 +1,122 @@
+package edu.trincoll.benchmark;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.InMemoryQuoteRepository;
+import edu.trincoll.repository.QuoteRepository;
+import edu.trincoll.repository.offheap.OffHeapQuoteRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded synthetic quote catalogue. The same size and cardinalities always
+ * produce the same quotes, so runs on different commits compare like with like.
+ * Categories, tags and authors are skewed towards low numbers, so a few are
+ * very common and most are rare, as in real data.
+ */
+final class Catalogue {
+
+    static final long SEED = 42;
+    static final LocalDateTime EPOCH = LocalDateTime.of(2020, 1, 1, 0, 0);
+    static final int SPAN_DAYS = 365;
+    private static final int BATCH = 10_000;
+
+    private static final String[] WORDS = {
+            "time", "life", "mind", "virtue", "courage", "fortune", "nature", "reason",
+            "death", "friend", "wisdom", "anger", "fear", "hope", "truth", "habit",
+            "patience", "duty", "freedom", "change", "sorrow", "joy", "justice", "desire",
+            "river", "stone", "fire", "shadow", "morning", "silence", "journey", "war",
+            "peace", "glory", "error", "practice", "honour", "wealth", "poverty", "labour",
+            "soul", "body", "art", "law", "power", "memory", "present", "future"
+    };
+
+    final int size;
+    final int categories;
+    final int tags;
+    final int authors;
+
+    Catalogue(int size, int categories, int tags) {
+        this.size = size;
+        this.categories = categories;
+        this.tags = tags;
+        this.authors = Math.max(1, size / 20);
+    }
+
+    static String category(int n) {
+        return "category-" + n;
+    }
+
+    static String tag(int n) {
+        return "tag-" + n;
+    }
+
+    static String author(int n) {
+        return "Author " + n;
+    }
+
+    static String word(int n) {
+        return WORDS[n % WORDS.length];
+    }
+
+    static int words() {
+        return WORDS.length;
+    }
+
+    /**
+     * A number in {@code [0, bound)}, with low numbers much more likely
+     */
+    static int skewed(SplittableRandom random, int bound) {
+        double u = random.nextDouble();
+        return (int) (bound * u * u * u);
+    }
+
+    static QuoteRepository newRepository(String implementation) {
+        return switch (implementation) {
+            case "memory" -> new InMemoryQuoteRepository();
+            case "offheap" -> new OffHeapQuoteRepository();
+            default -> throw new IllegalArgumentException("Unknown repository " + implementation);
+        };
+    }
+
+    /**
+     * Save the whole catalogue into a repository in batches
+     */
+    void populate(QuoteRepository repository) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Item> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < size; i++) {
+            batch.add(quote(random, i));
+            if (batch.size() == BATCH) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+    }
+
+    private Item quote(SplittableRandom random, int n) {
+        StringBuilder title = new StringBuilder();
+        for (int w = 0; w < 3; w++) {
+            title.append(w == 0 ? "" : " ").append(word(skewed(random, WORDS.length)));
+        }
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < 20; w++) {
+            text.append(w == 0 ? "" : " ").append(word(random.nextInt(WORDS.length)));
+        }
+        Item item = new Item(title.toString(), text.toString());
+        item.setCategory(category(skewed(random, categories)));
+        item.setAuthor(author(skewed(random, authors)));
+        item.setStatus(Item.Status.values()[random.nextInt(Item.Status.values().length)]);
+        item.setFavorite(random.nextInt(10) == 0);
+        item.setRating(Math.round(random.nextDouble() * 50) / 10.0);
+        int tagCount = 1 + random.nextInt(4);
+        for (int t = 0; t < tagCount; t++) {
+            item.addTag(tag(skewed(random, tags)));
+        }
+        LocalDateTime created = EPOCH.plusSeconds((long) n * SPAN_DAYS * 86_400 / Math.max(1, size));
+        item.restoreTimestamps(created, created);
+        return item;
+    }
+}
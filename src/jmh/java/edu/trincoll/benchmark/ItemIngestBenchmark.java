@@ -0,0 +1,88 @@
+package edu.trincoll.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import edu.trincoll.model.CoarseClock;
+import edu.trincoll.model.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building one quote the way the API does: field by field through
+ * the setters, in one batched edit, and from a JSON request body. Run with
+ * {@code -prof gc} ({@code -Pjmh.profilers=gc}) to see bytes per item.
+ * Items stamp from a {@link CoarseClock}, as they do in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemIngestBenchmark {
+
+    private static final String JSON = """
+            {"title":"On the Shortness of Life","description":"It is not that we have a short time to live, \
+            but that we waste a lot of it.","category":"Stoicism","author":"Seneca","status":"ACTIVE",\
+            "favorite":true,"rating":4.5,"tags":["stoic","classic","time"]}""";
+
+    private static final Set<String> TAGS = Set.of("stoic", "classic", "time");
+
+    private final ObjectReader reader = new ObjectMapper().findAndRegisterModules().readerFor(Item.class);
+
+    private Item.ClockScope clock;
+
+    @Setup
+    public void setUp() {
+        clock = Item.useClock(new CoarseClock(Clock.systemDefaultZone(), CoarseClock.DEFAULT_RESOLUTION));
+    }
+
+    @TearDown
+    public void tearDown() {
+        clock.close();
+    }
+
+    @Benchmark
+    public Item setters() {
+        Item item = new Item("On the Shortness of Life", "It is not that we have a short time to live.");
+        item.setCategory("Stoicism");
+        item.setAuthor("Seneca");
+        item.setStatus(Item.Status.ACTIVE);
+        item.setFavorite(true);
+        item.setRating(4.5);
+        item.setTags(TAGS);
+        return item;
+    }
+
+    @Benchmark
+    public Item edit() {
+        return new Item().edit(changes -> changes
+                .title("On the Shortness of Life")
+                .description("It is not that we have a short time to live.")
+                .category("Stoicism")
+                .author("Seneca")
+                .status(Item.Status.ACTIVE)
+                .favorite(true)
+                .rating(4.5)
+                .tags(TAGS));
+    }
+
+    @Benchmark
+    public Item json() throws IOException {
+        return reader.readValue(JSON);
+    }
+}
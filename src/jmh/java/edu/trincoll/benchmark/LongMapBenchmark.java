@@ -0,0 +1,68 @@
+package edu.trincoll.benchmark;
+
+import edu.trincoll.repository.ConcurrentLongMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point lookups in the primitive-keyed map behind the in-memory repository,
+ * against the boxed {@link ConcurrentHashMap} it replaced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongMapBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int size;
+
+    ConcurrentLongMap<Object> primitive;
+    ConcurrentHashMap<Long, Object> boxed;
+
+    @Setup(Level.Trial)
+    public void load() {
+        primitive = new ConcurrentLongMap<>();
+        boxed = new ConcurrentHashMap<>();
+        Object value = new Object();
+        for (long key = 1; key <= size; key++) {
+            primitive.put(key, value);
+            boxed.put(key, value);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private final SplittableRandom random = new SplittableRandom(Catalogue.SEED);
+
+        long next(int size) {
+            return 1 + random.nextLong(size);
+        }
+    }
+
+    @Benchmark
+    public Object primitiveGet(Keys keys) {
+        return primitive.get(keys.next(size));
+    }
+
+    @Benchmark
+    public Object boxedGet(Keys keys) {
+        return boxed.get(keys.next(size));
+    }
+}
@@ -0,0 +1,116 @@
+package edu.trincoll.benchmark;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.QuoteRepository;
+import edu.trincoll.service.QuoteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level searches and aggregations over a seeded catalogue held by the
+ * default in-memory repository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuoteServiceBenchmark {
+
+    /** Items made inactive again before each archive run */
+    static final int ARCHIVE_BATCH = 1_000;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"10", "1000"})
+    int categories;
+
+    @Param({"100", "10000"})
+    int tags;
+
+    QuoteRepository repository;
+    QuoteService service;
+    Catalogue catalogue;
+    private final SplittableRandom random = new SplittableRandom(Catalogue.SEED + 2);
+
+    @Setup(Level.Trial)
+    public void load() {
+        catalogue = new Catalogue(size, categories, tags);
+        repository = Catalogue.newRepository("memory");
+        catalogue.populate(repository);
+        service = new QuoteService(repository);
+        // start with nothing inactive, so each archive run sees only its own batch
+        service.archiveInactiveItems();
+    }
+
+    /**
+     * A random batch marked inactive before every archive run, outside the timed
+     * region. Kept in its own state so the other benchmarks skip the setup.
+     */
+    @State(Scope.Benchmark)
+    public static class InactiveBatch {
+
+        private final SplittableRandom random = new SplittableRandom(Catalogue.SEED + 3);
+
+        @Setup(Level.Invocation)
+        public void deactivate(QuoteServiceBenchmark benchmark) {
+            List<Item> batch = new ArrayList<>(ARCHIVE_BATCH);
+            for (int i = 0; i < ARCHIVE_BATCH; i++) {
+                Item item = benchmark.repository.findByIdOrNull(1 + random.nextLong(benchmark.size));
+                if (item != null) {
+                    Item copy = item.mutableCopy();
+                    copy.setStatus(Item.Status.INACTIVE);
+                    batch.add(copy);
+                }
+            }
+            benchmark.repository.saveAll(batch);
+        }
+    }
+
+    @Benchmark
+    public List<Item> search() {
+        return service.search(Catalogue.word(random.nextInt(Catalogue.words())) + " "
+                + Catalogue.word(random.nextInt(Catalogue.words())));
+    }
+
+    @Benchmark
+    public Map<String, List<Item>> groupByCategory() {
+        return service.groupByCategory();
+    }
+
+    @Benchmark
+    public List<String> getMostPopularTags() {
+        return service.getMostPopularTags(10);
+    }
+
+    @Benchmark
+    public List<Item> findByAllTags() {
+        String first = Catalogue.tag(Catalogue.skewed(random, tags));
+        String second = Catalogue.tag(Catalogue.skewed(random, tags));
+        return service.findByAllTags(first.equals(second) ? Set.of(first) : Set.of(first, second));
+    }
+
+    @Benchmark
+    public int archiveInactiveItems(InactiveBatch batch) {
+        return service.archiveInactiveItems();
+    }
+}
@@ -0,0 +1,247 @@
+package edu.trincoll.benchmark;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.Page;
+import edu.trincoll.repository.QuoteRepository;
+import edu.trincoll.repository.sketch.Estimate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link QuoteRepository} finder against a seeded catalogue, for both
+ * repository implementations. Arguments are drawn from the same skewed
+ * distributions as the data, so common values are queried most often.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryFinderBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"10", "1000"})
+    int categories;
+
+    @Param({"100", "10000"})
+    int tags;
+
+    @Param({"memory", "offheap"})
+    String implementation;
+
+    QuoteRepository repository;
+    Catalogue catalogue;
+
+    @Setup(Level.Trial)
+    public void load() {
+        catalogue = new Catalogue(size, categories, tags);
+        repository = Catalogue.newRepository(implementation);
+        catalogue.populate(repository);
+    }
+
+    /**
+     * Per-thread source of query arguments
+     */
+    @State(Scope.Thread)
+    public static class Arguments {
+
+        private final SplittableRandom random = new SplittableRandom(Catalogue.SEED + 1);
+        private Catalogue catalogue;
+
+        @Setup(Level.Trial)
+        public void setUp(RepositoryFinderBenchmark benchmark) {
+            catalogue = benchmark.catalogue;
+        }
+
+        long id() {
+            // ids above the catalogue are misses
+            return 1 + random.nextLong(catalogue.size + catalogue.size / 10);
+        }
+
+        String category() {
+            return Catalogue.category(Catalogue.skewed(random, catalogue.categories));
+        }
+
+        String tag() {
+            return Catalogue.tag(Catalogue.skewed(random, catalogue.tags));
+        }
+
+        Set<String> tagPair() {
+            String first = tag();
+            String second = tag();
+            return first.equals(second) ? Set.of(first) : Set.of(first, second);
+        }
+
+        String author() {
+            return Catalogue.author(Catalogue.skewed(random, catalogue.authors));
+        }
+
+        String word() {
+            return Catalogue.word(random.nextInt(Catalogue.words()));
+        }
+
+        Item.Status status() {
+            return Item.Status.values()[random.nextInt(Item.Status.values().length)];
+        }
+
+        List<Long> ids(int count) {
+            List<Long> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(id());
+            }
+            return ids;
+        }
+
+        LocalDateTime day() {
+            return Catalogue.EPOCH.plusDays(random.nextInt(Catalogue.SPAN_DAYS));
+        }
+    }
+
+    @Benchmark
+    public Item findById(Arguments arguments) {
+        return repository.findById(arguments.id()).orElse(null);
+    }
+
+    @Benchmark
+    public Item findByIdOrNull(Arguments arguments) {
+        return repository.findByIdOrNull(arguments.id());
+    }
+
+    @Benchmark
+    public boolean existsById(Arguments arguments) {
+        return repository.existsById(arguments.id());
+    }
+
+    @Benchmark
+    public List<Long> findExistingIds(Arguments arguments) {
+        return repository.findExistingIds(arguments.ids(100));
+    }
+
+    @Benchmark
+    public Page<Item> findAllPage(Arguments arguments) {
+        return repository.findAll(arguments.id(), 100);
+    }
+
+    @Benchmark
+    public List<Item> findByStatus(Arguments arguments) {
+        return repository.findByStatus(arguments.status());
+    }
+
+    @Benchmark
+    public Page<Item> findByStatusPage(Arguments arguments) {
+        return repository.findByStatus(arguments.status(), arguments.id(), 100);
+    }
+
+    @Benchmark
+    public List<Item> findByCategory(Arguments arguments) {
+        return repository.findByCategory(arguments.category());
+    }
+
+    @Benchmark
+    public Page<Item> findByCategoryPage(Arguments arguments) {
+        return repository.findByCategory(arguments.category(), null, 100);
+    }
+
+    @Benchmark
+    public List<Item> findByTag(Arguments arguments) {
+        return repository.findByTag(arguments.tag());
+    }
+
+    @Benchmark
+    public List<Item> findByAllTags(Arguments arguments) {
+        return repository.findByAllTags(arguments.tagPair());
+    }
+
+    @Benchmark
+    public List<Item> findByAnyTag(Arguments arguments) {
+        return repository.findByAnyTag(arguments.tagPair());
+    }
+
+    @Benchmark
+    public List<Item> findByTitleContaining(Arguments arguments) {
+        String word = arguments.word();
+        return repository.findByTitleContaining(word.substring(word.length() - 3));
+    }
+
+    @Benchmark
+    public Page<Item> search(Arguments arguments) {
+        return repository.search(arguments.word() + " " + arguments.word(), null, 20);
+    }
+
+    @Benchmark
+    public List<Item> findByAuthor(Arguments arguments) {
+        return repository.findByAuthor(arguments.author());
+    }
+
+    @Benchmark
+    public List<Item> findFavorites() {
+        return repository.findFavorites();
+    }
+
+    @Benchmark
+    public List<Item> findByMinRating() {
+        return repository.findByMinRating(4.8);
+    }
+
+    @Benchmark
+    public List<Item> findTopRated() {
+        return repository.findTopRated(10);
+    }
+
+    @Benchmark
+    public List<Item> findByDateRange(Arguments arguments) {
+        LocalDateTime start = arguments.day();
+        return repository.findByDateRange(start, start.plusDays(1));
+    }
+
+    @Benchmark
+    public Map<Item.Status, Long> countByStatus() {
+        return repository.countByStatus();
+    }
+
+    @Benchmark
+    public Set<String> findAllCategories() {
+        return repository.findAllCategories();
+    }
+
+    @Benchmark
+    public Map<String, Long> countByTag() {
+        return repository.countByTag();
+    }
+
+    @Benchmark
+    public List<String> findMostPopularTags() {
+        return repository.findMostPopularTags(10);
+    }
+
+    @Benchmark
+    public Estimate estimateDistinctAuthors() {
+        return repository.estimateDistinctAuthors();
+    }
+
+    @Benchmark
+    public Estimate estimateTagFrequency(Arguments arguments) {
+        return repository.estimateTagFrequency(arguments.tag());
+    }
+}
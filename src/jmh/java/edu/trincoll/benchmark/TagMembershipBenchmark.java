@@ -0,0 +1,101 @@
+package edu.trincoll.benchmark;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.QuoteRepository;
+import edu.trincoll.service.QuoteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tag membership checks on stored quotes. Run with {@code -prof gc}
+ * ({@code -Pjmh.profilers=gc}): checking a tag should allocate nothing,
+ * whether or not the caller normalized it, and a tag-filtered export should
+ * allocate the same whatever the catalogue size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagMembershipBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "100000"})
+    int size;
+
+    @Param({"100", "10000"})
+    int tags;
+
+    @Param({"memory", "offheap"})
+    String implementation;
+
+    Item[] items;
+    String[] normalized;
+    String[] mixedCase;
+    QuoteService service;
+
+    @Setup(Level.Trial)
+    public void load() {
+        Catalogue catalogue = new Catalogue(size, 10, tags);
+        QuoteRepository repository = Catalogue.newRepository(implementation);
+        catalogue.populate(repository);
+        service = new QuoteService(repository);
+        items = repository.findAll().toArray(new Item[0]);
+
+        // built up front so the benchmarks measure the checks, not the query strings
+        SplittableRandom random = new SplittableRandom(Catalogue.SEED + 1);
+        normalized = new String[QUERIES];
+        mixedCase = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            normalized[i] = Catalogue.tag(Catalogue.skewed(random, tags));
+            mixedCase[i] = " " + normalized[i].toUpperCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Per-thread position in the items and queries
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int next;
+
+        int next() {
+            return next++ & Integer.MAX_VALUE;
+        }
+    }
+
+    @Benchmark
+    public boolean hasTag(Cursor cursor) {
+        int n = cursor.next();
+        return items[n % items.length].hasTag(normalized[n % QUERIES]);
+    }
+
+    @Benchmark
+    public boolean hasTagMixedCase(Cursor cursor) {
+        int n = cursor.next();
+        return items[n % items.length].hasTag(mixedCase[n % QUERIES]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long exportByTag(Cursor cursor) {
+        return service.export(null, null, mixedCase[cursor.next() % QUERIES]).count();
+    }
+}
@@ -0,0 +1,81 @@
+package edu.trincoll.benchmark;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.InMemoryQuoteRepository;
+import edu.trincoll.repository.QuoteRepository;
+import edu.trincoll.repository.VersionConflictException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conditional updates from 64 threads. Each operation reads an item and
+ * retries its compare-and-set until it wins, so the score is successful
+ * updates per second; fewer hot items means more conflicts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class UpdateContentionBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    int items;
+
+    QuoteRepository repository;
+
+    @Setup(Level.Trial)
+    public void load() {
+        repository = new InMemoryQuoteRepository();
+        for (int i = 0; i < items; i++) {
+            repository.save(new Item("Counter " + i, "0"));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+
+        long id(int items) {
+            return 1 + random.nextInt(items);
+        }
+    }
+
+    @Benchmark
+    public Item compareAndSet(Picker picker) {
+        long id = picker.id(items);
+        while (true) {
+            Item current = repository.findByIdOrNull(id);
+            Item next = current.mutableCopy();
+            next.setDescription(String.valueOf(Long.parseLong(current.getDescription()) + 1));
+            try {
+                return repository.replace(next, current.getVersion()).orElseThrow();
+            } catch (VersionConflictException e) {
+                // lost the race; read the newer version and retry
+            }
+        }
+    }
+
+    @Benchmark
+    public Item blindSave(Picker picker) {
+        Item next = repository.findByIdOrNull(picker.id(items)).mutableCopy();
+        next.setRating(next.getRating() == 0 ? 1 : 0);
+        return repository.save(next);
+    }
+}
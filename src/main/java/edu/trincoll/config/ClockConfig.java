@@ -0,0 +1,21 @@
+package edu.trincoll.config;
+
+import edu.trincoll.model.CoarseClock;
+import edu.trincoll.model.Item;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * Installs a {@link CoarseClock} for item timestamps while the application
+ * context is running, and stops it with the context
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean(destroyMethod = "close")
+    public Item.ClockScope itemClock() {
+        return Item.useClock(new CoarseClock(Clock.systemDefaultZone(), CoarseClock.DEFAULT_RESOLUTION));
+    }
+}
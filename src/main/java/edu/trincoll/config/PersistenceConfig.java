@@ -0,0 +1,56 @@
+package edu.trincoll.config;
+
+import edu.trincoll.repository.InMemoryQuoteRepository;
+import edu.trincoll.repository.persistence.SnapshotScheduler;
+import edu.trincoll.repository.persistence.SnapshotStore;
+import edu.trincoll.repository.persistence.WriteAheadLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Wires the write-ahead log into the repository when {@code quotes.wal.enabled=true}
+ * and periodic snapshots when {@code quotes.snapshot.enabled=true}.
+ * Without either the repository runs purely in memory. Their background
+ * threads are virtual when {@code spring.threads.virtual.enabled=true}.
+ */
+@Configuration
+@EnableConfigurationProperties({WalProperties.class, SnapshotProperties.class})
+public class PersistenceConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "quotes.wal.enabled", havingValue = "true")
+    public WriteAheadLog writeAheadLog(WalProperties properties, Environment environment) throws IOException {
+        return new WriteAheadLog(properties.path(), properties.fsync(), properties.fsyncInterval(),
+                backgroundThreads("wal-flusher", environment));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "quotes.snapshot.enabled", havingValue = "true")
+    public SnapshotStore snapshotStore(SnapshotProperties properties) throws IOException {
+        return new SnapshotStore(properties.directory(), properties.retained());
+    }
+
+    @Bean(destroyMethod = "close")
+    @Profile("!offheap")
+    @ConditionalOnProperty(name = "quotes.snapshot.enabled", havingValue = "true")
+    public SnapshotScheduler snapshotScheduler(InMemoryQuoteRepository repository, SnapshotProperties properties,
+                                               Environment environment) {
+        return new SnapshotScheduler(repository::snapshot, properties.interval(),
+                backgroundThreads("snapshot-writer", environment));
+    }
+
+    private static ThreadFactory backgroundThreads(String name, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Thread.ofVirtual().name(name).factory();
+        }
+        return Thread.ofPlatform().name(name).daemon().factory();
+    }
+}
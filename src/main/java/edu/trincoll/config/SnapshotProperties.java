@@ -0,0 +1,23 @@
+package edu.trincoll.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for periodic snapshots of the in-memory repository.
+ *
+ * @param enabled whether snapshots are written and loaded on startup
+ * @param directory where snapshot files are kept
+ * @param interval how often a snapshot is written
+ * @param retained how many of the newest snapshots to keep
+ */
+@ConfigurationProperties(prefix = "quotes.snapshot")
+public record SnapshotProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/snapshots") Path directory,
+        @DefaultValue("5m") Duration interval,
+        @DefaultValue("2") int retained) {
+}
@@ -0,0 +1,24 @@
+package edu.trincoll.config;
+
+import edu.trincoll.repository.persistence.WriteAheadLog;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the optional durable mode of the in-memory repository.
+ *
+ * @param enabled whether writes are logged to a write-ahead log and replayed on startup
+ * @param path location of the log file
+ * @param fsync when appended records are forced to disk
+ * @param fsyncInterval how often the log is forced under {@link WriteAheadLog.FsyncPolicy#INTERVAL}
+ */
+@ConfigurationProperties(prefix = "quotes.wal")
+public record WalProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/quotes.wal") Path path,
+        @DefaultValue("interval") WriteAheadLog.FsyncPolicy fsync,
+        @DefaultValue("10ms") Duration fsyncInterval) {
+}
@@ -1,82 +1,140 @@
 package edu.trincoll.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import edu.trincoll.model.Item;
+import edu.trincoll.repository.Page;
+import edu.trincoll.service.ImportResult;
+import edu.trincoll.service.QuoteImportService;
 import edu.trincoll.service.QuoteService;
-import org.springframework.http.HttpStatus;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * The items API on Spring MVC. Under the {@code reactive} profile
+ * {@link ReactiveQuoteController} serves the same paths instead. Endpoints
+ * that answer alike on both stacks live in {@link QuoteQueryController}, and
+ * writes are validated by {@link QuoteResponses}.
+ */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/items")
 public class QuoteController {
     
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     private final QuoteService service;
+    private final QuoteImportService importService;
+    private final QuoteResponses responses;
+    private final ObjectWriter ndjsonWriter;
     
-    public QuoteController(QuoteService service) {
+    public QuoteController(QuoteService service, QuoteImportService importService, QuoteResponses responses,
+                           ObjectMapper objectMapper) {
         this.service = service;
+        this.importService = importService;
+        this.responses = responses;
+        this.ndjsonWriter = objectMapper.writerFor(Item.class);
     }
     
+    /**
+     * Every item, or one page of them when {@code limit} or {@code after} is given
+     */
     @GetMapping
-    public List<Item> getAllItems() {
-        return service.findAll();
+    public ResponseEntity<List<Item>> getAllItems(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(service.findAll());
+        }
+        return page(() -> service.findAll(after, pageSize(limit)));
     }
     
-    @GetMapping("/{id}")
-    public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-        return service.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    /**
+     * Stream matching items as newline-delimited JSON. Items are written one at
+     * a time as they are read from the store, so memory use does not depend on
+     * the size of the catalogue.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportItems(
+            @RequestParam(required = false) Item.Status status,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String tag) {
+        StreamingResponseBody body = out -> {
+            try (Stream<Item> items = service.export(status, category, tag)) {
+                Iterator<Item> iterator = items.iterator();
+                while (iterator.hasNext()) {
+                    out.write(ndjsonWriter.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
+    /**
+     * Import newline-delimited JSON quotes. Lines that fail to parse or validate
+     * are reported in the result and skipped; the rest of the body is still imported.
+     */
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ImportResult importItems(InputStream body) throws IOException {
+        return importService.importNdjson(body);
     }
     
     @PostMapping
     public ResponseEntity<Item> createItem(@RequestBody Item item) {
-        try {
-            Item saved = service.save(item);
-            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().build();
-        }
+        return responses.create(item);
     }
     
+    /**
+     * Replace an item, honouring {@code If-Match} as {@link QuoteResponses#update} describes
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Item> updateItem(@PathVariable Long id, @RequestBody Item item) {
-        if (!service.existsById(id)) {
-            return ResponseEntity.notFound().build();
-        }
-        item.setId(id);
-        try {
-            Item updated = service.save(item);
-            return ResponseEntity.ok(updated);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<Item> updateItem(@PathVariable Long id, @RequestBody Item item,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return responses.update(id, item, ifMatch);
     }
     
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteItem(@PathVariable Long id) {
-        try {
-            service.deleteById(id);
-            return ResponseEntity.noContent().build();
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.notFound().build();
-        }
+        return responses.delete(id);
     }
     
     // Additional endpoints for collections operations
     
     @GetMapping("/status/{status}")
-    public List<Item> getItemsByStatus(@PathVariable Item.Status status) {
-        return service.findByStatus(status);
+    public ResponseEntity<List<Item>> getItemsByStatus(
+            @PathVariable Item.Status status,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(service.findByStatus(status));
+        }
+        return page(() -> service.findByStatus(status, after, pageSize(limit)));
     }
     
     @GetMapping("/category/{category}")
-    public List<Item> getItemsByCategory(@PathVariable String category) {
-        return service.findByCategory(category);
+    public ResponseEntity<List<Item>> getItemsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(service.findByCategory(category));
+        }
+        return page(() -> service.findByCategory(category, after, pageSize(limit)));
     }
     
     @GetMapping("/grouped")
@@ -84,24 +142,40 @@ public class QuoteController {
         return service.groupByCategory();
     }
     
-    @GetMapping("/tags")
-    public Set<String> getAllTags() {
-        return service.getAllUniqueTags();
+    /**
+     * Ranked search, {@value QuoteService#DEFAULT_PAGE_SIZE} results at a time
+     * unless {@code limit} says otherwise. The cursor is the last hit's score
+     * and position, not a snapshot, so writes between pages can skip or repeat results.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Item>> searchItems(
+            @RequestParam String query,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + QuoteService.DEFAULT_PAGE_SIZE) int limit) {
+        return page(() -> service.search(query, after, limit));
     }
     
-    @GetMapping("/stats/status")
-    public Map<Item.Status, Long> getStatusStatistics() {
-        return service.countByStatus();
+    /**
+     * Page size for a paged request that did not give one
+     */
+    private static int pageSize(Integer limit) {
+        return limit == null ? QuoteService.DEFAULT_PAGE_SIZE : limit;
     }
     
-    @GetMapping("/search")
-    public List<Item> searchItems(@RequestParam String query) {
-        return service.search(query);
-    }
-
-    @GetMapping("/categories")
-    public Set<String> getAllCategories() {
-        return service.getAllUniqueCategories();
+    /**
+     * Render a page as a JSON array, passing the cursor for the next page in
+     * the {@value #NEXT_CURSOR_HEADER} header
+     */
+    private ResponseEntity<List<Item>> page(Supplier<Page<Item>> query) {
+        try {
+            Page<Item> page = query.get();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(page.items());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
-
-}
\ No newline at end of file
+}
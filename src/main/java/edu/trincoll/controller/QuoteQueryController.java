@@ -0,0 +1,150 @@
+package edu.trincoll.controller;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.sketch.Estimate;
+import edu.trincoll.service.QuoteService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The items API endpoints that answer the same way on Spring MVC and on
+ * WebFlux, so they are served under every profile alongside
+ * {@link QuoteController} or {@link ReactiveQuoteController}. Each returns a
+ * value computed from the in-memory indexes without waiting on I/O.
+ */
+@RestController
+@RequestMapping("/api/items")
+public class QuoteQueryController {
+    
+    private final QuoteService service;
+    
+    public QuoteQueryController(QuoteService service) {
+        this.service = service;
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<Item> getItemById(@PathVariable Long id) {
+        return service.findById(id)
+                .map(QuoteResponses::withETag)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Check many ids in one call
+     * @return the ids that exist, in the order given
+     */
+    @PostMapping("/exists")
+    public ResponseEntity<List<Long>> findExistingIds(@RequestBody List<Long> ids) {
+        try {
+            return ResponseEntity.ok(service.findExistingIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/rating")
+    public List<Item> getItemsWithMinRating(@RequestParam double min) {
+        return service.findByMinRating(min);
+    }
+    
+    @GetMapping("/top-rated")
+    public ResponseEntity<List<Item>> getTopRatedItems(@RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(service.getTopRated(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/created")
+    public ResponseEntity<List<Item>> getItemsCreatedBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(service.findByDateRange(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/tags")
+    public Set<String> getAllTags() {
+        return service.getAllUniqueTags();
+    }
+    
+    /**
+     * The most used tags, most used first. A limit of zero gives an empty
+     * list; a negative one is a bad request.
+     */
+    @GetMapping("/tags/popular")
+    public ResponseEntity<List<String>> getPopularTags(@RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(service.getMostPopularTags(limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/tag/{tag}")
+    public List<Item> getItemsByTag(@PathVariable String tag) {
+        return service.findByTag(tag);
+    }
+    
+    @GetMapping("/tags/all")
+    public List<Item> getItemsWithAllTags(@RequestParam Set<String> tags) {
+        return service.findByAllTags(tags);
+    }
+    
+    @GetMapping("/tags/any")
+    public List<Item> getItemsWithAnyTag(@RequestParam Set<String> tags) {
+        return service.findByAnyTag(tags);
+    }
+    
+    @GetMapping("/stats/status")
+    public Map<Item.Status, Long> getStatusStatistics() {
+        return service.countByStatus();
+    }
+    
+    /**
+     * Approximate statistics answered from fixed-size sketches. Each response
+     * carries its error bound and the confidence that the true value is within it.
+     */
+    @GetMapping("/stats/approx/authors")
+    public Estimate getApproximateDistinctAuthors() {
+        return service.estimateDistinctAuthors();
+    }
+    
+    @GetMapping("/stats/approx/tags")
+    public Estimate getApproximateDistinctTags() {
+        return service.estimateDistinctTags();
+    }
+    
+    @GetMapping("/stats/approx/tags/{tag}")
+    public ResponseEntity<Estimate> getApproximateTagFrequency(@PathVariable String tag) {
+        try {
+            return ResponseEntity.ok(service.estimateTagFrequency(tag));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/stats/approx/categories/{category}")
+    public ResponseEntity<Estimate> getApproximateCategoryFrequency(@PathVariable String category) {
+        try {
+            return ResponseEntity.ok(service.estimateCategoryFrequency(category));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/categories")
+    public Set<String> getAllCategories() {
+        return service.getAllUniqueCategories();
+    }
+}
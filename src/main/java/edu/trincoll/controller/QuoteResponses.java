@@ -0,0 +1,135 @@
+package edu.trincoll.controller;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.QuoteRepository;
+import edu.trincoll.repository.VersionConflictException;
+import edu.trincoll.service.QuoteService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Validation and response mapping for the item writes, shared by
+ * {@link QuoteController} and {@link ReactiveQuoteController} so both stacks
+ * answer a request the same way. Each method blocks on the service; the
+ * reactive controller calls them off the event loop.
+ */
+@Component
+class QuoteResponses {
+
+    private final QuoteService service;
+
+    QuoteResponses(QuoteService service) {
+        this.service = service;
+    }
+
+    /**
+     * Save a new item: 201 with its ETag, or 400 if it is invalid
+     */
+    ResponseEntity<Item> create(Item item) {
+        try {
+            Item saved = service.save(item);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(saved.getVersion())).body(saved);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Replace an item. With an {@code If-Match} header the write only goes
+     * ahead if the item exists and its current ETag is one of those listed, or
+     * the header is {@code *}; otherwise the response is 412, with the current
+     * ETag when there is an item.
+     */
+    ResponseEntity<Item> update(Long id, Item item, String ifMatch) {
+        try {
+            if (ifMatch == null) {
+                return service.update(id, item, QuoteRepository.ANY_VERSION)
+                        .map(QuoteResponses::withETag)
+                        .orElse(ResponseEntity.notFound().build());
+            }
+            LongPredicate matches = matching(ifMatch);
+            Optional<Item> current = service.findById(id);
+            if (current.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            long version = current.get().getVersion();
+            while (true) {
+                if (!matches.test(version)) {
+                    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(etag(version)).build();
+                }
+                try {
+                    return service.update(id, item, version)
+                            .map(QuoteResponses::withETag)
+                            .orElse(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+                } catch (VersionConflictException e) {
+                    // saved since the read; the new version may still be listed
+                    version = e.getCurrentVersion();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Delete an item: 204, or 404 if there is none
+     */
+    ResponseEntity<Void> delete(Long id) {
+        try {
+            service.deleteById(id);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    static ResponseEntity<Item> withETag(Item item) {
+        return ResponseEntity.ok().eTag(etag(item.getVersion())).body(item);
+    }
+
+    static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * The versions an {@code If-Match} header accepts: any version for
+     * {@code *}, otherwise those named by the strong ETags in its
+     * comma-separated list. Weak ETags and tags this service did not issue
+     * never match, as strong comparison requires.
+     */
+    static LongPredicate matching(String ifMatch) {
+        if (ifMatch.trim().equals("*")) {
+            return version -> true;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            Long version = versionOf(tag.trim());
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        return versions::contains;
+    }
+
+    /**
+     * Version named by one strong ETag from {@link #etag(long)}, or null if
+     * the tag is anything else
+     */
+    private static Long versionOf(String tag) {
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+            return version < 0 ? null : version;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package edu.trincoll.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.Page;
+import edu.trincoll.service.ImportResult;
+import edu.trincoll.service.QuoteImportService;
+import edu.trincoll.service.QuoteService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * The items API on WebFlux, active under the {@code reactive} profile in place
+ * of {@link QuoteController}.
+ * <p>
+ * Listing, search and grouping stream their results as a {@link Flux}. Pages
+ * are read from the repository as the client takes items, so the response
+ * starts at once and the server holds at most a couple of pages however large
+ * the result. These endpoints stream every match after {@code after}, capped
+ * at {@code limit} when it is given, instead of returning a single page.
+ * Writes run off the event loop because the write-ahead log may wait on disk,
+ * through the same {@link QuoteResponses} as the MVC controller. The other
+ * read endpoints are served on both stacks by {@link QuoteQueryController}.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/items")
+public class ReactiveQuoteController {
+
+    /**
+     * Items read from the repository per page while streaming
+     */
+    static final int STREAM_PAGE_SIZE = QuoteService.DEFAULT_PAGE_SIZE;
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final QuoteService service;
+    private final QuoteImportService importService;
+    private final QuoteResponses responses;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveQuoteController(QuoteService service, QuoteImportService importService, QuoteResponses responses,
+                                   ObjectMapper objectMapper) {
+        this.service = service;
+        this.importService = importService;
+        this.responses = responses;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public ResponseEntity<Flux<Item>> getAllItems(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return stream(cursor -> service.findAll(id(cursor), STREAM_PAGE_SIZE), cursor(after), limit);
+    }
+
+    /**
+     * Stream matching items as newline-delimited JSON, straight from the store
+     */
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    public Flux<Item> exportItems(
+            @RequestParam(required = false) Item.Status status,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String tag) {
+        return Flux.fromStream(() -> service.export(status, category, tag));
+    }
+
+    /**
+     * Import newline-delimited JSON quotes. The body is read as it arrives.
+     */
+    @PostMapping(value = "/import", consumes = NDJSON_VALUE)
+    public Mono<ImportResult> importItems(@RequestBody Flux<DataBuffer> body) {
+        return Mono.fromCallable(() -> {
+            try (InputStream in = DataBufferUtils.subscriberInputStream(body, 4)) {
+                return importService.importNdjson(in);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Item>> createItem(@RequestBody Item item) {
+        return write(() -> responses.create(item));
+    }
+
+    /**
+     * Replace an item, honouring {@code If-Match} as {@link QuoteResponses#update} describes
+     */
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Item>> updateItem(@PathVariable Long id, @RequestBody Item item,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return write(() -> responses.update(id, item, ifMatch));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteItem(@PathVariable Long id) {
+        return write(() -> responses.delete(id));
+    }
+
+    @GetMapping(value = "/status/{status}", produces = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public ResponseEntity<Flux<Item>> getItemsByStatus(
+            @PathVariable Item.Status status,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return stream(cursor -> service.findByStatus(status, id(cursor), STREAM_PAGE_SIZE), cursor(after), limit);
+    }
+
+    @GetMapping(value = "/category/{category}", produces = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public ResponseEntity<Flux<Item>> getItemsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return stream(cursor -> service.findByCategory(category, id(cursor), STREAM_PAGE_SIZE), cursor(after), limit);
+    }
+
+    /**
+     * Items grouped by category, as the same JSON object {@link QuoteController}
+     * returns. Categories are written one after another, each read a page at a
+     * time, so only the items being written are held in memory.
+     */
+    @GetMapping(value = "/grouped", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getItemsGroupedByCategory() {
+        Flux<byte[]> groups = Flux.fromIterable(new TreeSet<>(service.getAllUniqueCategories()))
+                .index()
+                .concatMap(entry -> {
+                    String category = entry.getT2();
+                    String open = (entry.getT1() == 0 ? "" : ",") + text(json(category)) + ":[";
+                    Flux<byte[]> items = pages(cursor -> service.findByCategory(category, id(cursor), STREAM_PAGE_SIZE), null)
+                            .index()
+                            .map(item -> item.getT1() == 0 ? json(item.getT2()) : prefixed(',', json(item.getT2())));
+                    return Flux.concat(Mono.just(bytes(open)), items, Mono.just(bytes("]")));
+                }, 1);
+        return Flux.concat(Mono.just(bytes("{")), groups, Mono.just(bytes("}")))
+                .map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+
+    /**
+     * Search results, best first, streamed a page at a time
+     */
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public ResponseEntity<Flux<Item>> searchItems(
+            @RequestParam String query,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        return stream(cursor -> service.search(query, cursor, STREAM_PAGE_SIZE), after, limit);
+    }
+
+    /**
+     * Run a write on a worker thread, off the event loop
+     */
+    private static <T> Mono<ResponseEntity<T>> write(Callable<ResponseEntity<T>> action) {
+        return Mono.fromCallable(action).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Stream a keyset-paginated query as a response body. The first page is
+     * read now, so a bad request is answered with 400 before anything is sent.
+     */
+    private static ResponseEntity<Flux<Item>> stream(Function<String, Page<Item>> query, String after, Integer limit) {
+        try {
+            if (limit != null && limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            Flux<Item> items = pages(query, after);
+            return ResponseEntity.ok(limit == null ? items : items.take(limit, true));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Every item of a keyset-paginated query from {@code after} on. The first
+     * page is read immediately; each later page only once the subscriber has
+     * asked for the items of the one before it.
+     */
+    static Flux<Item> pages(Function<String, Page<Item>> query, String after) {
+        Page<Item> first = query.apply(after);
+        Flux<Page<Item>> rest = first.nextCursor() == null ? Flux.empty()
+                : Flux.generate(first::nextCursor, (String cursor, SynchronousSink<Page<Item>> sink) -> {
+                    Page<Item> page = query.apply(cursor);
+                    sink.next(page);
+                    if (page.nextCursor() == null) {
+                        sink.complete();
+                    }
+                    return page.nextCursor();
+                });
+        return Flux.concat(Mono.just(first), rest).concatMapIterable(Page::items, 1);
+    }
+
+    private static String cursor(Long after) {
+        return after == null ? null : after.toString();
+    }
+
+    private static Long id(String cursor) {
+        return cursor == null ? null : Long.valueOf(cursor);
+    }
+
+    private byte[] json(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] prefixed(char prefix, byte[] bytes) {
+        byte[] result = new byte[bytes.length + 1];
+        result[0] = (byte) prefix;
+        System.arraycopy(bytes, 0, result, 1, bytes.length);
+        return result;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
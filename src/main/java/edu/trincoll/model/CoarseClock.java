@@ -0,0 +1,118 @@
+package edu.trincoll.model;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that reads its source once per tick and hands out the cached time
+ * in between. Reading it is a volatile load, so stamping an item costs no
+ * system call and no allocation; the price is that the time can be up to one
+ * resolution behind. A daemon thread refreshes the cached time until the
+ * clock is closed, so an owner must close it; the application context does
+ * for the clock it installs on {@link Item}.
+ */
+public final class CoarseClock extends Clock implements AutoCloseable {
+
+    public static final Duration DEFAULT_RESOLUTION = Duration.ofMillis(1);
+
+    private final Clock source;
+    private final ScheduledExecutorService ticker;
+    private volatile long millis;
+    private volatile long localMillis;
+
+    /**
+     * @param source the clock to sample
+     * @param resolution how often to sample it
+     * @throws IllegalArgumentException if the resolution is not positive
+     */
+    public CoarseClock(Clock source, Duration resolution) {
+        if (resolution.isNegative() || resolution.isZero()) {
+            throw new IllegalArgumentException("Resolution must be positive");
+        }
+        this.source = source;
+        tick();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coarse-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = resolution.toNanos();
+        ticker.scheduleAtFixedRate(this::tick, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    private void tick() {
+        long now = source.millis();
+        ZoneRules rules = source.getZone().getRules();
+        localMillis = now + rules.getOffset(Instant.ofEpochMilli(now)).getTotalSeconds() * 1000L;
+        millis = now;
+    }
+
+    /**
+     * The cached time as wall-clock millis in this clock's zone, that is
+     * epoch millis plus the zone offset in effect at that instant
+     */
+    public long localMillis() {
+        return localMillis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return source.getZone();
+    }
+
+    /**
+     * A view of this clock's cached time in another zone, sharing its ticker
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        if (zone.equals(getZone())) {
+            return this;
+        }
+        CoarseClock ticking = this;
+        return new Clock() {
+            @Override
+            public long millis() {
+                return ticking.millis();
+            }
+
+            @Override
+            public Instant instant() {
+                return ticking.instant();
+            }
+
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId other) {
+                return ticking.withZone(other);
+            }
+        };
+    }
+
+    /**
+     * Stop refreshing; the clock keeps returning the last time it read
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
@@ -1,31 +1,75 @@
 package edu.trincoll.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashSet;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
+/**
+ * A quote. Items built by callers are mutable; the in-memory repository stores
+ * and returns {@linkplain #immutableCopy() immutable copies}, so a stored item
+ * can be shared by every reader and can only change by saving a new one.
+ * <p>
+ * Timestamps are the wall-clock time in the zone of {@link #clock()}, kept
+ * as seconds and nanos of that local date-time, so a timestamp read from JSON
+ * or storage comes back exactly as given, whatever the zone and its DST
+ * rules. The clock is the system clock until the application installs a
+ * {@link CoarseClock} with {@link #useClock}, after which stamping a change
+ * neither allocates nor reads the system clock. Use {@link #edit} to change
+ * several fields under one timestamp.
+ * <p>
+ * Tags are held as a sorted array of distinct normalized strings, which the
+ * repository replaces with its interned instances. The array is never changed
+ * in place, so copies share it.
+ */
 public class Item {
     private Long id;
     private String title;
     private String description;
     private String category;
     private Status status;
-    private Set<String> tags;
-    private LocalDateTime createdAt;
-    private LocalDateTime updatedAt;
+    private String[] tags;
+    private Set<String> tagView;
+    private long createdSeconds;
+    private int createdNanos;
+    private long updatedSeconds;
+    private int updatedNanos;
     private String author;
     private boolean favorite;
     private double rating;
+    private long version;
+    private boolean immutable;
+    
+    private static final String[] NO_TAGS = new String[0];
+    
+    private static final AtomicReference<Clock> CLOCK = new AtomicReference<>(Clock.systemDefaultZone());
     
     public enum Status {
         ACTIVE, INACTIVE, ARCHIVED
     }
 
     public Item() {
-        this.tags = new HashSet<>();
+        this.tags = NO_TAGS;
         this.status = Status.ACTIVE;
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
+        long now = wallMillis(CLOCK.get());
+        this.createdSeconds = Math.floorDiv(now, 1000);
+        this.createdNanos = Math.floorMod(now, 1000) * 1_000_000;
+        this.updatedSeconds = createdSeconds;
+        this.updatedNanos = createdNanos;
         this.favorite = false;
         this.rating = 0.0;
     }
@@ -36,20 +80,80 @@ public class Item {
         this.description = description;
     }
     
+    /**
+     * The form tags are stored in: trimmed and lower case
+     */
+    public static String normalizeTag(String tag) {
+        return tag.toLowerCase(Locale.ROOT).trim();
+    }
+    
     public void addTag(String tag) {
-        if (tag != null && !tag.trim().isEmpty()) {
-            tags.add(tag.toLowerCase().trim());
-            this.updatedAt = LocalDateTime.now();
+        checkMutable();
+        if (tag != null && !tag.isBlank()) {
+            tags = withTag(tags, normalizeTag(tag));
+            touch();
         }
     }
     
     public void removeTag(String tag) {
-        tags.remove(tag.toLowerCase().trim());
-        this.updatedAt = LocalDateTime.now();
+        checkMutable();
+        tags = withoutTag(tags, normalizeTag(tag));
+        touch();
     }
     
+    /**
+     * Whether the item carries a tag, compared in normalized form. A binary
+     * search over the sorted tags; an ASCII tag is normalized as it is
+     * compared, so the check allocates nothing whatever its case or padding.
+     */
     public boolean hasTag(String tag) {
-        return tags.contains(tag.toLowerCase().trim());
+        int start = 0;
+        int end = tag.length();
+        for (int i = 0; i < end; i++) {
+            if (tag.charAt(i) >= 0x80) {
+                return Arrays.binarySearch(tags, normalizeTag(tag)) >= 0;
+            }
+        }
+        while (start < end && tag.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && tag.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int low = 0;
+        int high = tags.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareAscii(tags[mid], tag, start, end);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Compare a stored tag with the lower-cased ASCII range {@code tag[start, end)},
+     * in {@link String#compareTo} order
+     */
+    private static int compareAscii(String stored, String tag, int start, int end) {
+        int length = end - start;
+        int common = Math.min(stored.length(), length);
+        for (int i = 0; i < common; i++) {
+            char c = tag.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            int cmp = stored.charAt(i) - c;
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return stored.length() - length;
     }
     
     // Getters and Setters
@@ -58,6 +162,7 @@ public class Item {
     }
     
     public void setId(Long id) {
+        checkMutable();
         this.id = id;
     }
     
@@ -66,8 +171,9 @@ public class Item {
     }
     
     public void setTitle(String title) {
+        checkMutable();
         this.title = title;
-        this.updatedAt = LocalDateTime.now();
+        touch();
     }
     
     public String getDescription() {
@@ -75,8 +181,9 @@ public class Item {
     }
     
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
-        this.updatedAt = LocalDateTime.now();
+        touch();
     }
     
     public String getCategory() {
@@ -84,8 +191,9 @@ public class Item {
     }
     
     public void setCategory(String category) {
+        checkMutable();
         this.category = category;
-        this.updatedAt = LocalDateTime.now();
+        touch();
     }
     
     public Status getStatus() {
@@ -93,25 +201,240 @@ public class Item {
     }
     
     public void setStatus(Status status) {
+        checkMutable();
         this.status = status;
-        this.updatedAt = LocalDateTime.now();
+        touch();
     }
     
+    /**
+     * The tags, as a read-only view in sorted order. Use {@link #setTags},
+     * {@link #addTag} or {@link #removeTag} to change them.
+     */
     public Set<String> getTags() {
-        return new HashSet<>(tags);
+        if (tagView == null) {
+            tagView = new TagView();
+        }
+        return tagView;
     }
     
+    /**
+     * Replace the tags, normalizing each as {@link #addTag} does and dropping blank ones
+     */
     public void setTags(Set<String> tags) {
-        this.tags = new HashSet<>(tags);
-        this.updatedAt = LocalDateTime.now();
+        checkMutable();
+        this.tags = normalized(tags);
+        touch();
+    }
+    
+    private static String[] normalized(Set<String> tags) {
+        String[] normalized = new String[tags.size()];
+        int count = 0;
+        for (String tag : tags) {
+            if (tag != null && !tag.isBlank()) {
+                normalized[count++] = normalizeTag(tag);
+            }
+        }
+        if (count == 0) {
+            return NO_TAGS;
+        }
+        Arrays.sort(normalized, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (!normalized[i].equals(normalized[distinct - 1])) {
+                normalized[distinct++] = normalized[i];
+            }
+        }
+        return distinct == normalized.length ? normalized : Arrays.copyOf(normalized, distinct);
+    }
+    
+    private static String[] withTag(String[] tags, String tag) {
+        int at = Arrays.binarySearch(tags, tag);
+        if (at >= 0) {
+            return tags;
+        }
+        int insert = -at - 1;
+        String[] added = new String[tags.length + 1];
+        System.arraycopy(tags, 0, added, 0, insert);
+        added[insert] = tag;
+        System.arraycopy(tags, insert, added, insert + 1, tags.length - insert);
+        return added;
+    }
+    
+    private static String[] withoutTag(String[] tags, String tag) {
+        int at = Arrays.binarySearch(tags, tag);
+        if (at < 0) {
+            return tags;
+        }
+        if (tags.length == 1) {
+            return NO_TAGS;
+        }
+        String[] removed = new String[tags.length - 1];
+        System.arraycopy(tags, 0, removed, 0, at);
+        System.arraycopy(tags, at + 1, removed, at, tags.length - at - 1);
+        return removed;
+    }
+    
+    /**
+     * Read-only set over the current tag array
+     */
+    private final class TagView extends AbstractSet<String> {
+    
+        @Override
+        public int size() {
+            return tags.length;
+        }
+    
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String tag && Arrays.binarySearch(tags, tag) >= 0;
+        }
+    
+        @Override
+        public Iterator<String> iterator() {
+            String[] values = tags;
+            return new Iterator<>() {
+                private int next;
+    
+                @Override
+                public boolean hasNext() {
+                    return next < values.length;
+                }
+    
+                @Override
+                public String next() {
+                    if (next >= values.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return values[next++];
+                }
+            };
+        }
     }
     
     public LocalDateTime getCreatedAt() {
-        return createdAt;
+        return LocalDateTime.ofEpochSecond(createdSeconds, createdNanos, ZoneOffset.UTC);
     }
     
     public LocalDateTime getUpdatedAt() {
-        return updatedAt;
+        return LocalDateTime.ofEpochSecond(updatedSeconds, updatedNanos, ZoneOffset.UTC);
+    }
+    
+    /**
+     * Timestamps in a JSON body are kept as given
+     */
+    @JsonProperty("createdAt")
+    private void readCreatedAt(LocalDateTime createdAt) {
+        this.createdSeconds = createdAt.toEpochSecond(ZoneOffset.UTC);
+        this.createdNanos = createdAt.getNano();
+    }
+    
+    @JsonProperty("updatedAt")
+    private void readUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedSeconds = updatedAt.toEpochSecond(ZoneOffset.UTC);
+        this.updatedNanos = updatedAt.getNano();
+    }
+    
+    /**
+     * Restore the timestamps of an item read back from durable storage
+     */
+    public void restoreTimestamps(LocalDateTime createdAt, LocalDateTime updatedAt) {
+        checkMutable();
+        readCreatedAt(createdAt);
+        readUpdatedAt(updatedAt);
+    }
+    
+    /**
+     * Apply several changes under one {@code updatedAt} stamp, instead of one per setter
+     * @return this item
+     */
+    public Item edit(Consumer<Editor> changes) {
+        checkMutable();
+        changes.accept(new Editor());
+        touch();
+        return this;
+    }
+    
+    /**
+     * Field changes applied by {@link #edit}. Each sets the field the way its
+     * setter does, without stamping the update time.
+     */
+    public final class Editor {
+    
+        private Editor() {
+        }
+    
+        public Editor title(String title) {
+            Item.this.title = title;
+            return this;
+        }
+    
+        public Editor description(String description) {
+            Item.this.description = description;
+            return this;
+        }
+    
+        public Editor category(String category) {
+            Item.this.category = category;
+            return this;
+        }
+    
+        public Editor author(String author) {
+            Item.this.author = author;
+            return this;
+        }
+    
+        public Editor status(Status status) {
+            Item.this.status = status;
+            return this;
+        }
+    
+        public Editor favorite(boolean favorite) {
+            Item.this.favorite = favorite;
+            return this;
+        }
+    
+        public Editor rating(double rating) {
+            Item.this.rating = rating;
+            return this;
+        }
+    
+        public Editor tags(Set<String> tags) {
+            Item.this.tags = normalized(tags);
+            return this;
+        }
+    
+        public Editor addTag(String tag) {
+            if (tag != null && !tag.isBlank()) {
+                Item.this.tags = withTag(Item.this.tags, normalizeTag(tag));
+            }
+            return this;
+        }
+    
+        public Editor removeTag(String tag) {
+            Item.this.tags = withoutTag(Item.this.tags, normalizeTag(tag));
+            return this;
+        }
+    }
+
+    /**
+     * Replace category, author and tags with equal shared instances supplied by
+     * the repository. The values do not change, so this is not an update.
+     */
+    public void internStrings(UnaryOperator<String> categories, UnaryOperator<String> authors,
+                              UnaryOperator<String> tagValues) {
+        checkMutable();
+        this.category = categories.apply(category);
+        this.author = authors.apply(author);
+        for (int i = 0; i < tags.length; i++) {
+            if (tagValues.apply(tags[i]) != tags[i]) {
+                String[] interned = tags.clone();
+                for (int j = i; j < interned.length; j++) {
+                    interned[j] = tagValues.apply(interned[j]);
+                }
+                this.tags = interned;
+                return;
+            }
+        }
     }
 
     public String getAuthor() {
@@ -119,8 +442,9 @@ public class Item {
     }
 
     public void setAuthor(String author) {
+        checkMutable();
         this.author = author;
-        this.updatedAt = LocalDateTime.now();
+        touch();
     }
 
     public boolean isFavorite() {
@@ -128,8 +452,9 @@ public class Item {
     }
 
     public void setFavorite(boolean favorite) {
+        checkMutable();
         this.favorite = favorite;
-        this.updatedAt = LocalDateTime.now();
+        touch();
     }
 
     public double getRating() {
@@ -137,8 +462,165 @@ public class Item {
     }
 
     public void setRating(double rating) {
+        checkMutable();
         this.rating = rating;
-        this.updatedAt = LocalDateTime.now();
+        touch();
+    }
+    
+    /**
+     * Revision number assigned by the repository, starting at 1 and incremented
+     * on every save. Zero means the item has not been saved.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        checkMutable();
+        this.version = version;
+    }
+    
+    /**
+     * Whether this item is a stored copy whose setters throw
+     */
+    @JsonIgnore
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * A copy that can never change. Returns this item if it is already immutable.
+     */
+    public Item immutableCopy() {
+        if (immutable) {
+            return this;
+        }
+        Item copy = copy();
+        copy.immutable = true;
+        return copy;
+    }
+
+    /**
+     * A copy that can be changed and saved, leaving this item untouched
+     */
+    public Item mutableCopy() {
+        return copy();
+    }
+
+    private Item copy() {
+        Item copy = new Item();
+        copy.id = id;
+        copy.title = title;
+        copy.description = description;
+        copy.category = category;
+        copy.status = status;
+        copy.tags = tags;
+        copy.createdSeconds = createdSeconds;
+        copy.createdNanos = createdNanos;
+        copy.updatedSeconds = updatedSeconds;
+        copy.updatedNanos = updatedNanos;
+        copy.author = author;
+        copy.favorite = favorite;
+        copy.rating = rating;
+        copy.version = version;
+        return copy;
+    }
+
+    /**
+     * The clock every item stamps its timestamps from
+     */
+    public static Clock clock() {
+        return CLOCK.get();
+    }
+    
+    /**
+     * Replace the clock items stamp their timestamps from, for example with
+     * a fixed clock in a test. Timestamps already taken keep their value.
+     */
+    public static void setClock(Clock clock) {
+        CLOCK.set(Objects.requireNonNull(clock));
+    }
+    
+    /**
+     * Stamp timestamps from {@code clock} until the returned scope is closed.
+     * Closing it puts the system clock back, unless another clock has been
+     * installed since, and closes {@code clock} if it is a {@link CoarseClock}.
+     */
+    public static ClockScope useClock(Clock clock) {
+        setClock(clock);
+        return new ClockScope(clock);
+    }
+    
+    /**
+     * A clock installed by {@link #useClock}
+     */
+    public static final class ClockScope implements AutoCloseable {
+    
+        private final Clock clock;
+    
+        private ClockScope(Clock clock) {
+            this.clock = clock;
+        }
+    
+        @Override
+        public void close() {
+            CLOCK.compareAndSet(clock, Clock.systemDefaultZone());
+            if (clock instanceof CoarseClock coarse) {
+                coarse.close();
+            }
+        }
+    }
+    
+    private void touch() {
+        long now = wallMillis(CLOCK.get());
+        this.updatedSeconds = Math.floorDiv(now, 1000);
+        this.updatedNanos = Math.floorMod(now, 1000) * 1_000_000;
+    }
+    
+    /**
+     * The clock's time as wall-clock millis in its zone
+     */
+    private static long wallMillis(Clock clock) {
+        if (clock instanceof CoarseClock coarse) {
+            return coarse.localMillis();
+        }
+        long millis = clock.millis();
+        ZoneRules rules = clock.getZone().getRules();
+        ZoneOffset offset = rules.isFixedOffset()
+                ? rules.getOffset(Instant.EPOCH)
+                : rules.getOffset(Instant.ofEpochMilli(millis));
+        return millis + offset.getTotalSeconds() * 1000L;
+    }
+
+    private void checkMutable() {
+        if (immutable) {
+            throw new UnsupportedOperationException("Item " + id + " is a stored copy; change a mutableCopy() and save it");
+        }
+    }
+
+    /**
+     * Items are equal when every field is, whether or not either is immutable
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Item other)) {
+            return false;
+        }
+        return favorite == other.favorite && Double.compare(rating, other.rating) == 0 && version == other.version
+                && Objects.equals(id, other.id) && Objects.equals(title, other.title)
+                && Objects.equals(description, other.description) && Objects.equals(category, other.category)
+                && status == other.status && Arrays.equals(tags, other.tags)
+                && createdSeconds == other.createdSeconds && createdNanos == other.createdNanos
+                && updatedSeconds == other.updatedSeconds && updatedNanos == other.updatedNanos
+                && Objects.equals(author, other.author);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, version);
     }
     
     @Override
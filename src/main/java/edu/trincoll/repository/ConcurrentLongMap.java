@@ -0,0 +1,284 @@
+package edu.trincoll.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Concurrent hash map from primitive {@code long} keys to values, used as the
+ * primary store of the in-memory repository. Keys are never boxed and there
+ * is no node object per entry: each of the lock-striped segments is a pair of
+ * parallel {@code long[]}/{@code Object[]} arrays probed linearly.
+ * <p>
+ * Writers lock their segment; readers take no lock. A slot's key is written
+ * before its value is published with release semantics, and a slot never
+ * changes key until the segment is rehashed into new arrays, so a reader that
+ * sees a value also sees the right key. Removal leaves a tombstone that only
+ * the same key may revive; tombstones are dropped when the segment rehashes.
+ * Iteration is weakly consistent, like {@code ConcurrentHashMap}.
+ *
+ * @param <V> the value type
+ */
+public class ConcurrentLongMap<V> implements Iterable<V> {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Object TOMBSTONE = new Object();
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * @return the value for {@code key}, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int hash = hash(key);
+        Table table = segments[hash >>> (32 - SEGMENT_BITS)].table;
+        int mask = table.keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            Object value = SLOT.getAcquire(table.values, slot);
+            if (value == null) {
+                return null;
+            }
+            if (table.keys[slot] == key) {
+                return value == TOMBSTONE ? null : (V) value;
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value for {@code key}, or null if there was none
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        int hash = hash(key);
+        return segments[hash >>> (32 - SEGMENT_BITS)].put(key, hash, value);
+    }
+
+    /**
+     * @return the removed value, or null if there was none
+     */
+    public V remove(long key) {
+        int hash = hash(key);
+        return segments[hash >>> (32 - SEGMENT_BITS)].remove(key, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the values
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new ValueIterator();
+    }
+
+    /**
+     * Weakly consistent stream over the values
+     */
+    public Stream<V> values() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Arrays of one segment; replaced as a whole when the segment rehashes
+     */
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment<V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private volatile int size;
+        // live entries plus tombstones, guarded by the lock
+        private int used;
+
+        @SuppressWarnings("unchecked")
+        V put(long key, int hash, V value) {
+            lock.lock();
+            try {
+                Table current = table;
+                int mask = current.keys.length - 1;
+                int slot = hash & mask;
+                for (Object existing; (existing = current.values[slot]) != null; slot = (slot + 1) & mask) {
+                    if (current.keys[slot] == key) {
+                        SLOT.setRelease(current.values, slot, value);
+                        if (existing == TOMBSTONE) {
+                            size++;
+                            return null;
+                        }
+                        return (V) existing;
+                    }
+                }
+                if ((used + 1) * 4L > current.keys.length * 3L) {
+                    current = rehash(current);
+                    mask = current.keys.length - 1;
+                    slot = hash & mask;
+                    while (current.values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                }
+                current.keys[slot] = key;
+                SLOT.setRelease(current.values, slot, value);
+                used++;
+                size++;
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, int hash) {
+            lock.lock();
+            try {
+                Table current = table;
+                int mask = current.keys.length - 1;
+                for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                    Object existing = current.values[slot];
+                    if (existing == null) {
+                        return null;
+                    }
+                    if (current.keys[slot] == key) {
+                        if (existing == TOMBSTONE) {
+                            return null;
+                        }
+                        SLOT.setRelease(current.values, slot, TOMBSTONE);
+                        size--;
+                        return (V) existing;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                table = new Table(INITIAL_CAPACITY);
+                used = 0;
+                size = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Copy live entries into fresh arrays sized for them, dropping
+         * tombstones, and publish the new arrays to readers
+         */
+        private Table rehash(Table old) {
+            int capacity = INITIAL_CAPACITY;
+            while ((size + 1) * 4L > capacity * 3L / 2) {
+                capacity <<= 1;
+            }
+            Table fresh = new Table(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.keys.length; i++) {
+                Object value = old.values[i];
+                if (value != null && value != TOMBSTONE) {
+                    int slot = hash(old.keys[i]) & mask;
+                    while (fresh.values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    fresh.keys[slot] = old.keys[i];
+                    fresh.values[slot] = value;
+                }
+            }
+            used = size;
+            table = fresh;
+            return fresh;
+        }
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private int segment = -1;
+        private Table table;
+        private int slot;
+        private V next;
+
+        ValueIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V result = next;
+            advance();
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (true) {
+                if (table == null || slot == table.values.length) {
+                    if (++segment == SEGMENTS) {
+                        return;
+                    }
+                    table = segments[segment].table;
+                    slot = 0;
+                    continue;
+                }
+                Object value = SLOT.getAcquire(table.values, slot++);
+                if (value != null && value != TOMBSTONE) {
+                    next = (V) value;
+                    return;
+                }
+            }
+        }
+    }
+}
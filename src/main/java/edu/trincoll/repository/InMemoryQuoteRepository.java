@@ -1,48 +1,215 @@
 package edu.trincoll.repository;
 
 import edu.trincoll.model.Item;
+import edu.trincoll.repository.index.FullTextIndex;
+import edu.trincoll.repository.index.IndexKeys;
+import edu.trincoll.repository.index.QuoteIndexes;
+import edu.trincoll.repository.index.StringDictionary;
+import edu.trincoll.repository.persistence.SnapshotStore;
+import edu.trincoll.repository.index.TagIndex;
+import edu.trincoll.repository.persistence.WriteAheadLog;
+import edu.trincoll.repository.sketch.CountingBloomFilter;
+import edu.trincoll.repository.sketch.Estimate;
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.time.LocalDateTime;
 
 @Repository
+@Profile("!offheap")
 public class InMemoryQuoteRepository implements QuoteRepository {
     
-    private final Map<Long, Item> storage = new ConcurrentHashMap<>();
+    private static final System.Logger LOG = System.getLogger(InMemoryQuoteRepository.class.getName());
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int RESTORE_BATCH = 10_000;
+    private static final int INITIAL_FILTER_CAPACITY = 1 << 14;
+    
+    private final ConcurrentLongMap<Item> storage = new ConcurrentLongMap<>();
+    private final ConcurrentLongMap<IndexKeys> indexedKeys = new ConcurrentLongMap<>();
+    private final QuoteIndexes indexes = new QuoteIndexes();
     private final AtomicLong idGenerator = new AtomicLong(1);
+    // answers most lookups of missing ids without probing storage; replaced only under every lock stripe
+    private volatile CountingBloomFilter idFilter = new CountingBloomFilter(INITIAL_FILTER_CAPACITY);
+    private final ReentrantLock[] writeLocks = new ReentrantLock[LOCK_STRIPES];
+    private final WriteAheadLog wal;
+    private final SnapshotStore snapshots;
+    // one snapshot at a time, so pruning and log truncation see a settled set of snapshot files
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    
+    /**
+     * Create a purely in-memory repository
+     */
+    public InMemoryQuoteRepository() {
+        this(null, null);
+    }
+    
+    /**
+     * Create a repository that logs every write to a write-ahead log,
+     * first replaying the log to restore the state it describes
+     * @param wal the log, or null for a purely in-memory repository
+     */
+    public InMemoryQuoteRepository(@Nullable WriteAheadLog wal) {
+        this(wal, null);
+    }
     
+    /**
+     * Create a repository that restores the latest snapshot and then replays
+     * only the part of the write-ahead log written after it
+     * @param wal the log, or null to rely on snapshots alone
+     * @param snapshots where snapshots are kept, or null to replay the whole log
+     */
+    @Autowired
+    public InMemoryQuoteRepository(@Nullable WriteAheadLog wal, @Nullable SnapshotStore snapshots) {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+        this.wal = wal;
+        this.snapshots = snapshots;
+        recover();
+        growIdFilterIfNeeded();
+    }
+    
+    /**
+     * Save an immutable copy of an item, assigning its id and version to the
+     * item passed in as well unless that item is itself a stored copy
+     * @return the stored copy
+     */
     @Override
     public Item save(Item entity) {
+        entity = writable(entity);
         if (entity.getId() == null) {
             entity.setId(idGenerator.getAndIncrement());
+        } else {
+            // never hand out an id that was chosen explicitly
+            idGenerator.accumulateAndGet(entity.getId() + 1, Math::max);
+        }
+        Long id = entity.getId();
+        // writers of the same id are serialized by its lock stripe, so the move
+        // between index buckets and the log record happen as one step with the storage update.
+        // The record is appended first: if that fails, readers never see a change the log lacks.
+        ReentrantLock lock = writeLocks[stripe(id)];
+        long logPosition = 0;
+        Item stored;
+        lock.lock();
+        try {
+            entity.setVersion(nextVersion(id));
+            if (wal != null) {
+                logPosition = wal.appendSave(entity);
+            }
+            stored = store(entity);
+        } finally {
+            lock.unlock();
+        }
+        // wait for the disk outside the lock so other writers can join the same fsync
+        if (wal != null) {
+            wal.sync(logPosition);
         }
-        storage.put(entity.getId(), entity);
-        return entity;
+        growIdFilterIfNeeded();
+        return stored;
+    }
+    
+    /**
+     * Save an item only if one with its id is stored at the expected version.
+     * The version check and the write happen under the id's lock stripe, so a
+     * conflict costs one comparison and never blocks writers of other stripes.
+     */
+    @Override
+    public Optional<Item> replace(Item entity, long expectedVersion) {
+        Long id = entity.getId();
+        if (id == null || !idFilter.mightContain(id)) {
+            return Optional.empty();
+        }
+        entity = writable(entity);
+        ReentrantLock lock = writeLocks[stripe(id)];
+        long logPosition = 0;
+        Item stored;
+        lock.lock();
+        try {
+            Item current = storage.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+                throw new VersionConflictException(id, expectedVersion, current.getVersion());
+            }
+            entity.setVersion(current.getVersion() + 1);
+            if (wal != null) {
+                logPosition = wal.appendSave(entity);
+            }
+            stored = store(entity);
+        } finally {
+            lock.unlock();
+        }
+        if (wal != null) {
+            wal.sync(logPosition);
+        }
+        return Optional.of(stored);
     }
     
     @Override
     public Optional<Item> findById(Long id) {
-        return Optional.ofNullable(storage.get(id));
+        return id == null ? Optional.empty() : Optional.ofNullable(findByIdOrNull(id));
+    }
+
+    @Override
+    public Item findByIdOrNull(long id) {
+        return idFilter.mightContain(id) ? storage.get(id) : null;
     }
     
     @Override
     public List<Item> findAll() {
-        // TODO: Return defensive copy
-        return new ArrayList<>(storage.values());
+        List<Item> all = new ArrayList<>(storage.size());
+        storage.forEach(all::add);
+        return all;
     }
     
     @Override
     public void deleteById(Long id) {
-        storage.remove(id);
+        ReentrantLock lock = writeLocks[stripe(id)];
+        long logPosition = 0;
+        lock.lock();
+        try {
+            if (wal != null && indexedKeys.containsKey(id)) {
+                logPosition = wal.appendDelete(id);
+            }
+            remove(id);
+        } finally {
+            lock.unlock();
+        }
+        if (logPosition > 0) {
+            wal.sync(logPosition);
+        }
     }
     
     @Override
     public boolean existsById(Long id) {
-        return storage.containsKey(id);
+        return id != null && idFilter.mightContain(id) && storage.containsKey(id);
+    }
+
+    @Override
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        CountingBloomFilter filter = idFilter;
+        List<Long> existing = new ArrayList<>();
+        for (Long id : ids) {
+            if (id != null && filter.mightContain(id) && storage.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
     }
     
     @Override
@@ -52,33 +219,108 @@ public class InMemoryQuoteRepository implements QuoteRepository {
     
     @Override
     public void deleteAll() {
-        storage.clear();
-        idGenerator.set(1);
+        long logPosition = 0;
+        for (ReentrantLock lock : writeLocks) {
+            lock.lock();
+        }
+        try {
+            if (wal != null) {
+                logPosition = wal.appendDeleteAll();
+            }
+            clear();
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                writeLocks[i].unlock();
+            }
+        }
+        if (wal != null) {
+            wal.sync(logPosition);
+        }
     }
     
+    /**
+     * Save a batch. Ids for new items are reserved as one block with a single
+     * atomic add above every explicit id in the batch, and the indexes are updated once for the whole batch while
+     * the lock stripes of every id in it are held.
+     */
     @Override
-    public List<Item> saveAll(List<Item> entities) {
-        return entities.stream()
-                .map(this::save)
-                .collect(Collectors.toList());
+    public List<Item> saveAll(List<Item> items) {
+        List<Item> entities = new ArrayList<>(items.size());
+        for (Item item : items) {
+            entities.add(writable(item));
+        }
+        long nextId = reserveIds(entities);
+        for (Item entity : entities) {
+            if (entity.getId() == null) {
+                entity.setId(nextId++);
+            }
+        }
+        // stripes are always taken in ascending order, so concurrent batches cannot deadlock
+        int[] stripes = entities.stream().mapToInt(entity -> stripe(entity.getId())).distinct().sorted().toArray();
+        long logPosition = 0;
+        List<Item> stored;
+        for (int stripe : stripes) {
+            writeLocks[stripe].lock();
+        }
+        try {
+            for (Item entity : entities) {
+                // an id repeated in the batch counts once, since only its last copy is kept
+                entity.setVersion(nextVersion(entity.getId()));
+            }
+            if (wal != null && !entities.isEmpty()) {
+                logPosition = wal.appendSaves(entities);
+            }
+            stored = storeAll(entities);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                writeLocks[stripes[i]].unlock();
+            }
+        }
+        if (logPosition > 0) {
+            wal.sync(logPosition);
+        }
+        growIdFilterIfNeeded();
+        return stored;
     }
     
     @Override
     public List<Item> findByStatus(Item.Status status) {
-        // TODO: Implement using streams
-        return storage.values().stream()
-                .filter(item -> item.getStatus() == status)
-                .collect(Collectors.toList());
+        return resolve(indexes.idsWithStatus(status), keys -> keys.status() == status);
+    }
+
+    @Override
+    public Stream<Item> stream() {
+        return storage.values();
+    }
+
+    @Override
+    public Page<Item> findAll(Long after, int limit) {
+        return page(indexes.idsAfter(after), keys -> true, limit);
+    }
+
+    @Override
+    public Page<Item> findByStatus(Item.Status status, Long after, int limit) {
+        return page(indexes.idsWithStatusAfter(status, after), keys -> keys.status() == status, limit);
+    }
+
+    @Override
+    public Page<Item> findByCategory(String category, Long after, int limit) {
+        int code = indexes.categoryCode(category);
+        if (code == StringDictionary.NULL_CODE) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        return page(indexes.idsInCategoryAfter(code, after),
+                keys -> keys.category() == code && indexes.isCategory(code, category), limit);
     }
 
     @Override
     public List<Item> findByCategory(String category) {
-        if (category == null) {
+        int code = indexes.categoryCode(category);
+        if (code == StringDictionary.NULL_CODE) {
             return new ArrayList<>();
         }
-        return storage.values().stream()
-                .filter(item -> category.equals(item.getCategory()))
-                .collect(Collectors.toList());
+        return resolve(indexes.idsInCategory(code),
+                keys -> keys.category() == code && indexes.isCategory(code, category));
     }
 
     @Override
@@ -86,9 +328,28 @@ public class InMemoryQuoteRepository implements QuoteRepository {
         if (tag == null || tag.trim().isEmpty()) {
             return new ArrayList<>();
         }
-        return storage.values().stream()
-                .filter(item -> item.hasTag(tag))
-                .collect(Collectors.toList());
+        String normalized = Item.normalizeTag(tag);
+        return indexes.lookup(() -> resolve(indexes.ordinalsWithTag(tag), item -> item.hasTag(normalized)));
+    }
+
+    @Override
+    public List<Item> findByAllTags(Set<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> normalized = TagIndex.normalizeAll(tags);
+        return indexes.lookup(() -> resolve(indexes.ordinalsWithAllTags(tags),
+                item -> normalized.stream().allMatch(item::hasTag)));
+    }
+
+    @Override
+    public List<Item> findByAnyTag(Set<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> normalized = TagIndex.normalizeAll(tags);
+        return indexes.lookup(() -> resolve(indexes.ordinalsWithAnyTag(tags),
+                item -> normalized.stream().anyMatch(item::hasTag)));
     }
 
     @Override
@@ -96,10 +357,27 @@ public class InMemoryQuoteRepository implements QuoteRepository {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return new ArrayList<>();
         }
-        return storage.values().stream()
-                .filter(item -> item.getTitle() != null &&
-                        item.getTitle().toLowerCase().contains(searchTerm.toLowerCase()))
-                .collect(Collectors.toList());
+        return indexes.lookup(() -> resolve(indexes.ordinalsWithTitleContaining(searchTerm), item -> true));
+    }
+
+    @Override
+    public Page<Item> search(String query, String after, int limit) {
+        if (limit <= 0 || query == null || query.trim().isEmpty()) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        FullTextIndex.Hit cursor = after == null ? null : FullTextIndex.Hit.fromCursor(after);
+        return indexes.lookup(() -> {
+            List<FullTextIndex.Hit> hits = indexes.search(query, cursor, limit);
+            List<Item> result = new ArrayList<>(hits.size());
+            for (FullTextIndex.Hit hit : hits) {
+                Item item = storage.get(indexes.idAt(hit.ordinal()));
+                if (item != null) {
+                    result.add(item);
+                }
+            }
+            String nextCursor = hits.size() < limit ? null : hits.get(hits.size() - 1).toCursor();
+            return new Page<>(result, nextCursor);
+        });
     }
 
     @Override
@@ -107,30 +385,426 @@ public class InMemoryQuoteRepository implements QuoteRepository {
         if (author == null || author.trim().isEmpty()) {
             return new ArrayList<>();
         }
-        return storage.values().stream()
-                .filter(item -> author.equals(item.getAuthor()))
-                .collect(Collectors.toList());
+        int code = indexes.authorCode(author);
+        if (code == StringDictionary.NULL_CODE) {
+            return new ArrayList<>();
+        }
+        return resolve(indexes.idsByAuthor(code), keys -> keys.author() == code && indexes.isAuthor(code, author));
     }
 
     @Override
     public List<Item> findFavorites() {
-        return storage.values().stream()
-                .filter(Item::isFavorite)
-                .collect(Collectors.toList());
+        return resolve(indexes.favoriteIds(), IndexKeys::favorite);
     }
 
     @Override
     public List<Item> findByMinRating(double minRating) {
-        return storage.values().stream()
-                .filter(item -> item.getRating() >= minRating)
+        return indexes.ratingsAtLeast(minRating)
+                .map(entry -> matching(entry.id(), keys -> keys.rating() >= minRating
+                        && QuoteIndexes.ratingKey(keys.rating()) == entry.key()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Item> findTopRated(int limit) {
+        return indexes.ratingsDescending()
+                .map(entry -> matching(entry.id(), keys -> QuoteIndexes.ratingKey(keys.rating()) == entry.key()))
+                .filter(Objects::nonNull)
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<Item> findByDateRange(LocalDateTime start, LocalDateTime end) {
-        return storage.values().stream()
-                .filter(item -> item.getCreatedAt().isAfter(start) &&
-                        item.getCreatedAt().isBefore(end))
+        if (start == null || end == null) {
+            return new ArrayList<>();
+        }
+        return indexes.createdBetween(start, end)
+                .map(entry -> matching(entry.id(), keys -> keys.createdAt().equals(entry.key())))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    public Map<Item.Status, Long> countByStatus() {
+        return indexes.countByStatus();
+    }
+
+    @Override
+    public Set<String> findAllCategories() {
+        return indexes.categories();
+    }
+
+    @Override
+    public Map<String, Long> countByTag() {
+        return indexes.tagCounts();
+    }
+
+    @Override
+    public List<String> findMostPopularTags(int limit) {
+        return indexes.mostPopularTags(limit);
+    }
+
+    /**
+     * Counts every author written since the last {@link #deleteAll()},
+     * including those whose quotes have since been deleted
+     */
+    @Override
+    public Estimate estimateDistinctAuthors() {
+        return indexes.estimateDistinctAuthors();
+    }
+
+    /**
+     * Counts every tag written since the last {@link #deleteAll()},
+     * including those no stored quote carries any more
+     */
+    @Override
+    public Estimate estimateDistinctTags() {
+        return indexes.estimateDistinctTags();
+    }
+
+    @Override
+    public Estimate estimateTagFrequency(String tag) {
+        return indexes.estimateTagFrequency(TagIndex.normalize(tag));
+    }
+
+    @Override
+    public Estimate estimateCategoryFrequency(String category) {
+        return indexes.estimateCategoryFrequency(category);
+    }
+
+    /**
+     * Look up the items behind a set of index ids. The predicate re-checks the
+     * indexed keys so an item caught mid-move between buckets is reported once.
+     */
+    private List<Item> resolve(Set<Long> ids, Predicate<IndexKeys> stillMatches) {
+        List<Item> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Item item = matching(id, stillMatches);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The stored item for an id if its indexed keys still match, otherwise null
+     */
+    private Item matching(Long id, Predicate<IndexKeys> stillMatches) {
+        IndexKeys keys = indexedKeys.get(id);
+        return keys != null && stillMatches.test(keys) ? storage.get(id) : null;
+    }
+
+    /**
+     * Put an immutable copy of an item into storage and the indexes. Callers hold its lock stripe.
+     * @return the stored copy
+     */
+    private Item store(Item entity) {
+        indexes.intern(entity);
+        Item stored = entity.immutableCopy();
+        IndexKeys after = indexes.keysOf(stored);
+        admit(stored.getId());
+        storage.put(stored.getId(), stored);
+        indexes.update(stored.getId(), indexedKeys.put(stored.getId(), after), after);
+        return stored;
+    }
+
+    /**
+     * Put a batch into storage and update the indexes once for all of it.
+     * Callers hold the lock stripes of every id in the batch.
+     */
+    private List<Item> storeAll(List<Item> entities) {
+        List<QuoteIndexes.Change> changes = new ArrayList<>(entities.size());
+        List<Item> result = new ArrayList<>(entities.size());
+        for (Item entity : entities) {
+            indexes.intern(entity);
+            Item stored = entity.immutableCopy();
+            IndexKeys after = indexes.keysOf(stored);
+            admit(stored.getId());
+            storage.put(stored.getId(), stored);
+            changes.add(new QuoteIndexes.Change(stored.getId(), indexedKeys.put(stored.getId(), after), after));
+            result.add(stored);
+        }
+        indexes.updateAll(changes);
+        return result;
+    }
+
+    /**
+     * Move the id generator past the largest explicit id in a batch, then
+     * reserve a block of ids for the items that have none. Advancing first
+     * keeps the reserved block clear of the batch's own explicit ids.
+     * @return the first reserved id
+     */
+    private long reserveIds(List<Item> entities) {
+        long unassigned = 0;
+        long maxExplicitId = 0;
+        for (Item entity : entities) {
+            if (entity.getId() == null) {
+                unassigned++;
+            } else {
+                maxExplicitId = Math.max(maxExplicitId, entity.getId());
+            }
+        }
+        if (maxExplicitId > 0) {
+            idGenerator.accumulateAndGet(maxExplicitId + 1, Math::max);
+        }
+        return idGenerator.getAndAdd(unassigned);
+    }
+
+    /**
+     * The item to assign an id and version to: the caller's own, or a copy of a stored one
+     */
+    private static Item writable(Item entity) {
+        return entity.isImmutable() ? entity.mutableCopy() : entity;
+    }
+
+    /**
+     * Remove an item from storage and the indexes. Callers hold its lock stripe.
+     * @return whether the item existed
+     */
+    private boolean remove(Long id) {
+        IndexKeys before = indexedKeys.remove(id);
+        if (before == null) {
+            return false;
+        }
+        storage.remove(id);
+        // only after the item is gone, so a reader never sees it stored but filtered out
+        idFilter.remove(id);
+        indexes.update(id, before, null);
+        return true;
+    }
+
+    /**
+     * Add a new id to the filter before it is put into storage. Callers hold its lock stripe.
+     */
+    private void admit(Long id) {
+        if (!indexedKeys.containsKey(id)) {
+            idFilter.add(id);
+        }
+    }
+
+    /**
+     * Version for the next save of an id. Callers hold its lock stripe.
+     */
+    private long nextVersion(Long id) {
+        Item current = storage.get(id);
+        return current == null ? 1 : current.getVersion() + 1;
+    }
+
+    private void clear() {
+        storage.clear();
+        indexedKeys.clear();
+        indexes.clear();
+        idFilter = new CountingBloomFilter(INITIAL_FILTER_CAPACITY);
+        idGenerator.set(1);
+    }
+
+    private boolean needsGrowth() {
+        CountingBloomFilter filter = idFilter;
+        return filter.isOverCapacity() && filter.capacity() < CountingBloomFilter.MAX_CAPACITY;
+    }
+
+    /**
+     * Rebuild the id filter at twice the size once it holds more ids than it
+     * was sized for. Every lock stripe is held so no id is added or removed
+     * while the stored ids are copied in.
+     */
+    private void growIdFilterIfNeeded() {
+        if (!needsGrowth()) {
+            return;
+        }
+        for (ReentrantLock lock : writeLocks) {
+            lock.lock();
+        }
+        try {
+            if (!needsGrowth()) {
+                return;
+            }
+            int capacity = idFilter.capacity() * 2;
+            while (capacity < storage.size() && capacity < CountingBloomFilter.MAX_CAPACITY) {
+                capacity *= 2;
+            }
+            CountingBloomFilter grown = new CountingBloomFilter(Math.min(capacity, CountingBloomFilter.MAX_CAPACITY));
+            storage.forEach(item -> grown.add(item.getId()));
+            idFilter = grown;
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                writeLocks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot of the store, pausing writers only while the log
+     * position is read. Writers append their log record and apply it under
+     * their lock stripe, so with every stripe held no write sits between the
+     * two: each write before the position is already in storage, and every
+     * write the snapshot might miss or catch half-way is in the part of the
+     * log replayed after it. Once the
+     * snapshot is on disk, log records that every retained snapshot covers
+     * are dropped, so the log only holds what recovery would replay.
+     * Concurrent calls run one after another.
+     * @return the path of the new snapshot file
+     */
+    public Path snapshot() {
+        if (snapshots == null) {
+            throw new IllegalStateException("Snapshots are not enabled");
+        }
+        snapshotLock.lock();
+        try {
+            return writeSnapshot();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private Path writeSnapshot() {
+        long logPosition;
+        long logId;
+        long nextId;
+        for (ReentrantLock lock : writeLocks) {
+            lock.lock();
+        }
+        try {
+            logPosition = wal == null ? 0 : wal.currentPosition();
+            logId = wal == null ? 0 : wal.getLogId();
+            nextId = idGenerator.get();
+        } finally {
+            for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                writeLocks[i].unlock();
+            }
+        }
+        Path written;
+        try {
+            written = snapshots.write(logPosition, logId, nextId, storage);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot", e);
+        }
+        if (wal != null) {
+            try {
+                wal.truncateBefore(snapshots.earliestReplayPosition(logId));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not truncate write-ahead log " + wal.getPath(), e);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Rebuild storage, indexes and the id generator from the latest snapshot
+     * and the write-ahead log after it. The generator resumes after the highest
+     * id ever logged, even if that item was later deleted, matching what it
+     * would have handed out next.
+     */
+    private void recover() {
+        SnapshotStore.Header snapshot = null;
+        if (snapshots != null) {
+            List<Item> batch = new ArrayList<>(RESTORE_BATCH);
+            try {
+                Optional<SnapshotStore.Header> header = snapshots.loadLatest(item -> {
+                    batch.add(item);
+                    if (batch.size() == RESTORE_BATCH) {
+                        storeAll(batch);
+                        batch.clear();
+                    }
+                });
+                storeAll(batch);
+                if (header.isPresent()) {
+                    snapshot = header.get();
+                    idGenerator.set(snapshot.nextId());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load snapshot", e);
+            }
+        }
+        if (wal == null) {
+            return;
+        }
+        try {
+            wal.replay(replayStart(snapshot), new WriteAheadLog.Replayer() {
+                @Override
+                public void save(Item item) {
+                    store(item);
+                    idGenerator.accumulateAndGet(item.getId() + 1, Math::max);
+                }
+
+                @Override
+                public void delete(long id) {
+                    remove(id);
+                }
+
+                @Override
+                public void deleteAll() {
+                    clear();
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay write-ahead log " + wal.getPath(), e);
+        }
+    }
+
+    /**
+     * Where log replay starts after a snapshot. A snapshot of another log, as
+     * when the log file was replaced or recreated, says nothing about this
+     * one, so the whole log is replayed over it; every record is a full-state
+     * write, so that is always safe.
+     */
+    private long replayStart(@Nullable SnapshotStore.Header snapshot) throws IOException {
+        long start = wal.startPosition();
+        if (snapshot == null || snapshot.logId() != wal.getLogId()) {
+            return start;
+        }
+        if (snapshot.walPosition() < start) {
+            LOG.log(System.Logger.Level.WARNING, "Write-ahead log " + wal.getPath() + " starts at " + start
+                    + ", after the snapshot's position " + snapshot.walPosition()
+                    + "; writes in between are lost");
+            return start;
+        }
+        if (snapshot.walPosition() > wal.currentPosition()) {
+            // the log lost an unsynced tail the snapshot already holds; new records
+            // would reuse positions the snapshot claims, so the log takes a new id
+            wal.renewLogId();
+            return wal.currentPosition();
+        }
+        return snapshot.walPosition();
+    }
+
+    private static int stripe(Long id) {
+        return (int) (id ^ (id >>> 32)) & (LOCK_STRIPES - 1);
+    }
+
+    /**
+     * Resolve ids in order until {@code limit} items match, without touching the rest
+     */
+    private Page<Item> page(Iterable<Long> ids, Predicate<IndexKeys> stillMatches, int limit) {
+        List<Item> result = new ArrayList<>(Math.min(limit, 1024));
+        for (Long id : ids) {
+            if (result.size() == limit) {
+                break;
+            }
+            Item item = matching(id, stillMatches);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return Page.of(result, limit, Item::getId);
+    }
+
+    /**
+     * Look up the items behind a bitmap of index ordinals. The predicate
+     * re-checks each item, since a tag code looked up before the indexes were
+     * cleared may have come to stand for a different tag.
+     */
+    private List<Item> resolve(RoaringBitmap ordinals, Predicate<Item> stillMatches) {
+        List<Item> result = new ArrayList<>(ordinals.getCardinality());
+        ordinals.forEach((IntConsumer) ordinal -> {
+            Item item = storage.get(indexes.idAt(ordinal));
+            if (item != null && stillMatches.test(item)) {
+                result.add(item);
+            }
+        });
+        return result;
+    }
 }
\ No newline at end of file
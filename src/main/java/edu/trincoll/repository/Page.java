@@ -0,0 +1,26 @@
+package edu.trincoll.repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated query.
+ *
+ * @param items the items on this page
+ * @param nextCursor token to pass as {@code after} for the following page,
+ *                   or null when there are no more results
+ * @param <T> the item type
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Build a page whose cursor is the key of its last item. A page shorter
+     * than the limit is the last one and carries no cursor.
+     */
+    public static <T> Page<T> of(List<T> items, int limit, Function<T, ?> key) {
+        if (items.isEmpty() || items.size() < limit) {
+            return new Page<>(items, null);
+        }
+        return new Page<>(items, String.valueOf(key.apply(items.get(items.size() - 1))));
+    }
+}
@@ -1,31 +1,129 @@
 package edu.trincoll.repository;
 
 import edu.trincoll.model.Item;
+import edu.trincoll.repository.sketch.Estimate;
+
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
+/**
+ * Quote storage. Items returned by finders may be shared, {@linkplain Item#isImmutable() immutable}
+ * stored copies; change a {@link Item#mutableCopy()} and save it instead.
+ */
 public interface QuoteRepository extends Repository<Item, Long> {
+
+    /**
+     * Expected version that matches whatever version is stored
+     */
+    long ANY_VERSION = -1;
+
+    /**
+     * Save a quote only if one with its id is already stored
+     * @return the saved quote, or empty if no quote has its id
+     */
+    default Optional<Item> replace(Item entity) {
+        return replace(entity, ANY_VERSION);
+    }
+
+    /**
+     * Save a quote only if one with its id is stored at the expected version.
+     * The default checks and then saves, so a concurrent write can slip in
+     * between; implementations should do both in one step.
+     * @param expectedVersion the version the caller last saw, or {@link #ANY_VERSION}
+     * @return the saved quote with its new version, or empty if no quote has its id
+     * @throws VersionConflictException if the stored quote is at another version
+     */
+    default Optional<Item> replace(Item entity, long expectedVersion) {
+        Optional<Item> current = entity.getId() == null ? Optional.empty() : findById(entity.getId());
+        if (current.isEmpty()) {
+            return Optional.empty();
+        }
+        if (expectedVersion != ANY_VERSION && current.get().getVersion() != expectedVersion) {
+            throw new VersionConflictException(entity.getId(), expectedVersion, current.get().getVersion());
+        }
+        return Optional.of(save(entity));
+    }
+
+    /**
+     * Point lookup without boxing the id or allocating an {@link java.util.Optional}
+     * @return the item, or null if there is none
+     */
+    default Item findByIdOrNull(long id) {
+        return findById(id).orElse(null);
+    }
     
     /**
      * Find all items with a specific status
      */
     List<Item> findByStatus(Item.Status status);
+
+    /**
+     * Lazily stream every item without copying the store. The stream is weakly
+     * consistent: it never fails under concurrent writes, and may or may not
+     * reflect writes made after it was created.
+     */
+    Stream<Item> stream();
+
+    /**
+     * Find up to {@code limit} items, in id order, whose id is greater than {@code after}
+     * @param after the last id of the previous page, or null for the first page
+     */
+    Page<Item> findAll(Long after, int limit);
+
+    /**
+     * Find up to {@code limit} items with a status, in id order, whose id is greater than {@code after}
+     */
+    Page<Item> findByStatus(Item.Status status, Long after, int limit);
     
     /**
      * Find all items in a category
      */
     List<Item> findByCategory(String category);
+
+    /**
+     * Find up to {@code limit} items in a category, in id order, whose id is greater than {@code after}
+     */
+    Page<Item> findByCategory(String category, Long after, int limit);
     
     /**
      * Find all items containing a specific tag
      */
     List<Item> findByTag(String tag);
+
+    /**
+     * Find all items containing every one of the tags (AND)
+     */
+    List<Item> findByAllTags(Set<String> tags);
+
+    /**
+     * Find all items containing at least one of the tags (OR)
+     */
+    List<Item> findByAnyTag(Set<String> tags);
     
     /**
      * Find items with a title containing the search term (case-insensitive)
      */
     List<Item> findByTitleContaining(String searchTerm);
 
+    /**
+     * Full-text search over title, description, category and author,
+     * ranked by relevance (BM25), best match first
+     * @param query free text; the last word also matches as a prefix
+     * @param after cursor returned with the previous page, or null for the first page. It names
+     *              the last hit's score and position rather than a fixed result set, so a write
+     *              between pages can move a quote across it and have it skipped or repeated.
+     * @param limit maximum number of results; an empty last page if not positive
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    Page<Item> search(String query, String after, int limit);
+
     /**
      * Find quotes by author name
      */
@@ -42,7 +140,78 @@ public interface QuoteRepository extends Repository<Item, Long> {
     List<Item> findByMinRating(double minRating);
 
     /**
-     * Find quotes created within date range
+     * Find the highest rated quotes, best first
+     * @param limit maximum number of quotes to return
+     */
+    List<Item> findTopRated(int limit);
+
+    /**
+     * Find quotes created strictly between two instants, oldest first
      */
     List<Item> findByDateRange(java.time.LocalDateTime start, java.time.LocalDateTime end);
-}
\ No newline at end of file
+
+    /**
+     * Number of quotes per status, leaving out statuses with none.
+     * Implementations should keep this up to date on every write; the default scans.
+     */
+    default Map<Item.Status, Long> countByStatus() {
+        return stream().filter(item -> item.getStatus() != null)
+                .collect(Collectors.groupingBy(Item::getStatus, Collectors.counting()));
+    }
+
+    /**
+     * Categories used by at least one quote
+     */
+    default Set<String> findAllCategories() {
+        return stream().map(Item::getCategory).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    /**
+     * Number of quotes carrying each normalized tag
+     */
+    default Map<String, Long> countByTag() {
+        return stream().flatMap(item -> item.getTags().stream())
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+
+    /**
+     * The {@code limit} normalized tags carried by the most quotes, most used first, ties by name
+     */
+    default List<String> findMostPopularTags(int limit) {
+        return countByTag().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Approximate number of distinct authors. Implementations may answer from a
+     * fixed-size sketch; the default counts exactly.
+     */
+    default Estimate estimateDistinctAuthors() {
+        return Estimate.exact(stream().map(Item::getAuthor).filter(Objects::nonNull).distinct().count());
+    }
+
+    /**
+     * Approximate number of distinct normalized tags
+     */
+    default Estimate estimateDistinctTags() {
+        return Estimate.exact(countByTag().size());
+    }
+
+    /**
+     * Approximate number of quotes carrying a tag
+     */
+    default Estimate estimateTagFrequency(String tag) {
+        return Estimate.exact(countByTag().getOrDefault(Item.normalizeTag(tag), 0L));
+    }
+
+    /**
+     * Approximate number of quotes in a category
+     */
+    default Estimate estimateCategoryFrequency(String category) {
+        return Estimate.exact(stream().filter(item -> Objects.equals(item.getCategory(), category)).count());
+    }
+}
@@ -1,5 +1,6 @@
 package edu.trincoll.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,6 +46,15 @@ public interface Repository<T, ID> {
      */
     boolean existsById(ID id);
     
+    /**
+     * Check many IDs in one call
+     * @param ids the IDs to check
+     * @return the IDs that exist, in the order given
+     */
+    default List<ID> findExistingIds(Collection<ID> ids) {
+        return ids.stream().filter(this::existsById).toList();
+    }
+    
     /**
      * Count total number of entities
      * @return the count
@@ -0,0 +1,18 @@
+package edu.trincoll.repository;
+
+/**
+ * Thrown when a conditional write names a version other than the stored one
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VersionConflictException(Long id, long expectedVersion, long currentVersion) {
+        super("Item " + id + " is at version " + currentVersion + ", not " + expectedVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
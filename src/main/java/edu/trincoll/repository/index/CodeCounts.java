@@ -0,0 +1,48 @@
+package edu.trincoll.repository.index;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference counts of dictionary codes, kept in step with every write so that
+ * distinct-value aggregates cost O(distinct values) instead of a full scan.
+ * A code that is no longer referenced has no entry.
+ */
+public class CodeCounts {
+
+    private final Map<Integer, Long> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Adjust the count of a code, dropping it once it reaches zero.
+     * {@link StringDictionary#NULL_CODE} is ignored.
+     */
+    public void add(int code, long delta) {
+        if (code == StringDictionary.NULL_CODE || delta == 0) {
+            return;
+        }
+        counts.compute(code, (key, count) -> {
+            long previous = count == null ? 0 : count;
+            long updated = previous + delta;
+            changed(code, previous, updated);
+            return updated == 0 ? null : updated;
+        });
+    }
+
+    /**
+     * Called with the code's lock held whenever its count changes
+     */
+    protected void changed(int code, long before, long after) {
+    }
+
+    /**
+     * Live read-only view of the referenced codes and their counts
+     */
+    public Map<Integer, Long> view() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public void clear() {
+        counts.clear();
+    }
+}
@@ -0,0 +1,289 @@
+package edu.trincoll.repository.index;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tokenizing inverted index with Okapi BM25 ranking.
+ * <p>
+ * Each term maps to a bitmap of the ordinals whose text contains it, and each
+ * ordinal keeps its sorted term list with frequencies. Queries are scored
+ * document-at-a-time over the union of the query terms' bitmaps, so no score
+ * accumulator proportional to the catalogue is ever allocated. The last query
+ * token also matches as a prefix so partially typed words still find results.
+ */
+public class FullTextIndex {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final NavigableMap<String, RoaringBitmap> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Document[] documents = new Document[1024];
+    private int documentCount;
+    private long totalLength;
+
+    /**
+     * Result order: descending score, ties broken by ordinal
+     */
+    static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparingInt(Hit::ordinal);
+
+    /**
+     * A ranked match. A hit doubles as the keyset cursor for the page after it.
+     */
+    public record Hit(int ordinal, double score) {
+
+        /**
+         * Opaque token identifying this hit's position in the ranking
+         */
+        public String toCursor() {
+            String position = Long.toHexString(Double.doubleToLongBits(score)) + ":" + ordinal;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Parse a token produced by {@link #toCursor()}
+         * @throws IllegalArgumentException if the token is malformed
+         */
+        public static Hit fromCursor(String cursor) {
+            try {
+                String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int colon = position.indexOf(':');
+                return new Hit(Integer.parseInt(position.substring(colon + 1)),
+                        Double.longBitsToDouble(Long.parseUnsignedLong(position.substring(0, colon), 16)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+            }
+        }
+    }
+
+    /**
+     * Sorted terms of one document with their frequencies
+     */
+    public record Document(String[] terms, int[] frequencies, int length) {
+
+        int frequency(String term) {
+            int i = Arrays.binarySearch(terms, term);
+            return i < 0 ? 0 : frequencies[i];
+        }
+    }
+
+    /**
+     * Split text into lower-case letter and digit runs
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Analyzed text for one ordinal, ready to be swapped in under the write lock
+     */
+    public record Update(int ordinal, Document document) {
+
+        /**
+         * Tokenize the fields of an ordinal. Passing no fields removes it.
+         */
+        public static Update of(int ordinal, String... fields) {
+            return new Update(ordinal, analyze(fields));
+        }
+    }
+
+    /**
+     * Replace the text indexed for an ordinal. Passing no fields removes it.
+     */
+    public void update(int ordinal, String... fields) {
+        updateAll(List.of(Update.of(ordinal, fields)));
+    }
+
+    /**
+     * Apply a batch of analyzed updates under a single acquisition of the write lock
+     */
+    public void updateAll(List<Update> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Update update : updates) {
+                apply(update.ordinal(), update.document());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(int ordinal, Document document) {
+        Document previous = ordinal < documents.length ? documents[ordinal] : null;
+        if (previous != null && Arrays.equals(previous.terms, document.terms)
+                && Arrays.equals(previous.frequencies, document.frequencies)) {
+            return;
+        }
+        if (previous != null) {
+            for (String term : previous.terms) {
+                RoaringBitmap bitmap = postings.get(term);
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            documentCount--;
+            totalLength -= previous.length;
+            documents[ordinal] = null;
+        }
+        if (document.length == 0) {
+            return;
+        }
+        if (ordinal >= documents.length) {
+            documents = Arrays.copyOf(documents, Math.max(ordinal + 1, documents.length * 2));
+        }
+        documents[ordinal] = document;
+        documentCount++;
+        totalLength += document.length;
+        for (String term : document.terms) {
+            postings.computeIfAbsent(term, t -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+
+    public void remove(int ordinal) {
+        update(ordinal);
+    }
+
+    /**
+     * Rank indexed documents against a query
+     * @param query free text
+     * @param after the last hit of the previous page, or null for the first page
+     * @param limit maximum number of hits to return
+     * @return hits ordered by descending score, ties broken by ordinal
+     */
+    public List<Hit> search(String query, Hit after, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, RoaringBitmap> terms = expand(tokens);
+            if (terms.isEmpty()) {
+                return List.of();
+            }
+            Map<String, Double> idf = new HashMap<>();
+            terms.forEach((term, bitmap) -> idf.put(term, idf(bitmap.getCardinality())));
+            double averageLength = (double) totalLength / documentCount;
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            IntIterator matches = FastAggregation.or(terms.values().iterator()).getIntIterator();
+            while (matches.hasNext()) {
+                int ordinal = matches.next();
+                Document document = documents[ordinal];
+                double score = 0;
+                for (Map.Entry<String, Double> term : idf.entrySet()) {
+                    int tf = document.frequency(term.getKey());
+                    if (tf > 0) {
+                        score += term.getValue() * tf * (K1 + 1)
+                                / (tf + K1 * (1 - B + B * document.length / averageLength));
+                    }
+                }
+                Hit hit = new Hit(ordinal, score);
+                if (after != null && RANKING.compare(hit, after) <= 0) {
+                    continue;
+                }
+                top.add(hit);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANKING);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents = new Document[1024];
+            documentCount = 0;
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Posting lists for the query terms. The last token is expanded to every
+     * indexed term it is a prefix of.
+     */
+    private Map<String, RoaringBitmap> expand(List<String> tokens) {
+        Map<String, RoaringBitmap> terms = new HashMap<>();
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            RoaringBitmap bitmap = postings.get(tokens.get(i));
+            if (bitmap != null) {
+                terms.put(tokens.get(i), bitmap);
+            }
+        }
+        String last = tokens.get(tokens.size() - 1);
+        for (Map.Entry<String, RoaringBitmap> term
+                : postings.subMap(last, true, last + Character.MAX_VALUE, false).entrySet()) {
+            terms.put(term.getKey(), term.getValue());
+            if (terms.size() >= tokens.size() - 1 + MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+        }
+        return terms;
+    }
+
+    private static Document analyze(String... fields) {
+        Map<String, Integer> counts = new TreeMap<>();
+        int length = 0;
+        for (String field : fields) {
+            for (String token : tokenize(field)) {
+                counts.merge(token, 1, Integer::sum);
+                length++;
+            }
+        }
+        String[] terms = counts.keySet().toArray(new String[0]);
+        int[] frequencies = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            frequencies[i] = counts.get(terms[i]);
+        }
+        return new Document(terms, frequencies, length);
+    }
+}
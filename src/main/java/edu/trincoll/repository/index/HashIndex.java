@@ -0,0 +1,82 @@
+package edu.trincoll.repository.index;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary index mapping a key to the ids of the items that currently hold it.
+ * Null keys are never indexed, so a field that is unset simply has no bucket.
+ * Buckets keep their ids sorted so keyset pagination can resume after any id.
+ *
+ * @param <K> the indexed key type
+ */
+public class HashIndex<K> {
+
+    private final Map<K, NavigableSet<Long>> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Add an id to the bucket for a key
+     */
+    public void add(K key, Long id) {
+        if (key == null) {
+            return;
+        }
+        buckets.compute(key, (k, ids) -> {
+            NavigableSet<Long> bucket = ids != null ? ids : new ConcurrentSkipListSet<>();
+            bucket.add(id);
+            return bucket;
+        });
+    }
+
+    /**
+     * Remove an id from the bucket for a key, dropping the bucket once it is empty
+     */
+    public void remove(K key, Long id) {
+        if (key == null) {
+            return;
+        }
+        buckets.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Move an id from one bucket to another. The id is added to the new bucket
+     * before it leaves the old one, so concurrent readers never miss it.
+     */
+    public void move(K before, K after, Long id) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        add(after, id);
+        remove(before, id);
+    }
+
+    /**
+     * Ids currently indexed under a key in ascending order, as a read-only live view
+     */
+    public NavigableSet<Long> get(K key) {
+        if (key == null) {
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<Long> ids = buckets.get(key);
+        return ids == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(ids);
+    }
+
+    /**
+     * Ids indexed under a key that are greater than {@code after}, or all of them if it is null
+     */
+    public NavigableSet<Long> after(K key, Long after) {
+        NavigableSet<Long> ids = get(key);
+        return after == null ? ids : ids.tailSet(after, false);
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+}
@@ -0,0 +1,30 @@
+package edu.trincoll.repository.index;
+
+import edu.trincoll.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Immutable copy of the indexed fields of an item as of its last save.
+ * Items are mutable, so the repository keeps this snapshot to know which
+ * buckets an item has to leave when it is updated or deleted. Category,
+ * author and tags are held as dictionary codes; see {@link QuoteIndexes#keysOf(Item)}.
+ *
+ * @param tags distinct codes of the normalized tags, in ascending order
+ */
+public record IndexKeys(String title, String description, Item.Status status, int category,
+                        int author, boolean favorite, double rating, LocalDateTime createdAt,
+                        int[] tags) {
+
+    /**
+     * Whether the fields covered by full-text search differ from another snapshot
+     */
+    public boolean textDiffers(IndexKeys other) {
+        return other == null
+                || !Objects.equals(title, other.title)
+                || !Objects.equals(description, other.description)
+                || category != other.category
+                || author != other.author;
+    }
+}
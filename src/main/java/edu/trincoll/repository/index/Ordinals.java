@@ -0,0 +1,213 @@
+package edu.trincoll.repository.index;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Assigns dense int ordinals to item ids so that bitmap indexes stay compact
+ * even when ids are sparse. Released ordinals are reused, but only once no
+ * {@linkplain #lookup lookup} that began before the release is still running.
+ * Callers release an ordinal after clearing its bits, so a lookup that began
+ * later cannot see them, and one that began earlier still maps them to the
+ * old id, whose item is gone.
+ * <p>
+ * Reclamation is epoch-based: each release is tagged with the current epoch
+ * and moves the epoch on, and each lookup registers under the epoch it began
+ * in. An ordinal is free again once every lookup registered at or before its
+ * tag has returned, so steady read traffic delays reuse only by the length
+ * of one lookup instead of holding it off for as long as reads overlap.
+ */
+public class Ordinals {
+
+    /**
+     * Ordinals released in one epoch
+     */
+    private record Released(long epoch, RoaringBitmap ordinals) {
+    }
+
+    private final Map<Long, Integer> ordinals = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong epoch = new AtomicLong();
+    // running lookups by the epoch they began in; emptied epochs are dropped under the lock
+    private final Map<Long, LongAdder> lookups = new ConcurrentHashMap<>();
+    private final Deque<Released> released = new ArrayDeque<>();
+    private final RoaringBitmap free = new RoaringBitmap();
+    private volatile long[] ids = new long[1024];
+    private int next;
+
+    /**
+     * Ordinal for an id, assigning a free one if it has none yet.
+     * The lock is taken outside the map's own per-bin monitor, so a virtual
+     * thread waiting for it unmounts instead of pinning its carrier.
+     */
+    public int acquire(Long id) {
+        Integer ordinal = ordinals.get(id);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        lock.lock();
+        try {
+            ordinal = ordinals.get(id);
+            if (ordinal == null) {
+                ordinal = assign(id);
+                ordinals.put(id, ordinal);
+            }
+            return ordinal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ordinal for an id, or -1 if it has none
+     */
+    public int ordinalOf(Long id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Forget an id. Its ordinal becomes free once the lookups running now finish.
+     */
+    public void release(Long id) {
+        lock.lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                releasedNow().add(ordinal);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long idAt(int ordinal) {
+        return ids[ordinal];
+    }
+
+    /**
+     * Run a query that reads ordinals from an index and maps them to ids.
+     * Ordinals released while it runs are not reused until it returns.
+     */
+    public <T> T lookup(Supplier<T> query) {
+        LongAdder running = register();
+        try {
+            return query.get();
+        } finally {
+            running.decrement();
+        }
+    }
+
+    /**
+     * How many ordinals have been handed out, free ones included; the id
+     * table and the bitmaps are sized by it
+     */
+    public int assigned() {
+        lock.lock();
+        try {
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget every id. Their ordinals are reused like released ones.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            ordinals.clear();
+            free.clear();
+            released.clear();
+            releasedNow().add(0L, next);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Count a lookup under the current epoch. If the epoch moves on before
+     * the count is visible, a release may already have missed it, so the
+     * lookup registers again under the new epoch.
+     */
+    private LongAdder register() {
+        while (true) {
+            long current = epoch.get();
+            LongAdder running = lookups.computeIfAbsent(current, ignored -> new LongAdder());
+            running.increment();
+            if (epoch.get() == current) {
+                return running;
+            }
+            running.decrement();
+        }
+    }
+
+    /**
+     * Where ordinals released now are collected. Callers hold the lock.
+     */
+    private RoaringBitmap releasedNow() {
+        // later lookups register under the next epoch, so only those running now hold these ordinals back
+        long tag = epoch.getAndIncrement();
+        Released last = released.peekLast();
+        if (last == null || last.epoch() != tag) {
+            last = new Released(tag, new RoaringBitmap());
+            released.addLast(last);
+        }
+        return last.ordinals();
+    }
+
+    /**
+     * Free the ordinals released before the oldest running lookup began,
+     * dropping the counts of epochs with no lookup left. Callers hold the lock.
+     */
+    private void reclaim() {
+        long oldest = epoch.get();
+        Iterator<Map.Entry<Long, LongAdder>> entries = lookups.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, LongAdder> entry = entries.next();
+            if (entry.getValue().sum() > 0) {
+                oldest = Math.min(oldest, entry.getKey());
+            } else if (entry.getKey() < epoch.get()) {
+                // a lookup still registering here sees the epoch has moved and registers again
+                entries.remove();
+            }
+        }
+        while (!released.isEmpty() && released.peekFirst().epoch() < oldest) {
+            free.or(released.pollFirst().ordinals());
+        }
+    }
+
+    /**
+     * Callers hold the lock
+     */
+    private int assign(long id) {
+        if (free.isEmpty() && !released.isEmpty()) {
+            reclaim();
+        }
+        long[] current = ids;
+        int ordinal;
+        if (!free.isEmpty()) {
+            ordinal = free.first();
+            free.remove(ordinal);
+        } else {
+            ordinal = next++;
+            if (ordinal == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+        }
+        current[ordinal] = id;
+        ids = current;
+        return ordinal;
+    }
+}
@@ -0,0 +1,464 @@
+package edu.trincoll.repository.index;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.sketch.Estimate;
+import edu.trincoll.repository.sketch.QuoteSketches;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Secondary indexes maintained by the in-memory repository so that finders
+ * cost O(result size) instead of a scan over every stored quote.
+ */
+public class QuoteIndexes {
+
+    private final NavigableSet<Long> allIds = new ConcurrentSkipListSet<>();
+    private final HashIndex<Item.Status> byStatus = new HashIndex<>();
+    private final HashIndex<Integer> byCategory = new HashIndex<>();
+    private final HashIndex<Integer> byAuthor = new HashIndex<>();
+    private final HashIndex<Boolean> favorites = new HashIndex<>();
+    private final RangeIndex<Double> byRating = new RangeIndex<>();
+    private final RangeIndex<LocalDateTime> byCreatedAt = new RangeIndex<>();
+    private final Ordinals ordinals = new Ordinals();
+    private final TagIndex byTag = new TagIndex();
+    private final FullTextIndex text = new FullTextIndex();
+    private final TrigramIndex titles = new TrigramIndex();
+    private final StringDictionary categories = new StringDictionary();
+    private final StringDictionary authors = new StringDictionary();
+    private final StringDictionary tags = new StringDictionary();
+
+    private final LongAdder[] statusCounts = new LongAdder[Item.Status.values().length];
+    private final CodeCounts categoryCounts = new CodeCounts();
+    private final RankedCodeCounts tagCounts = new RankedCodeCounts(tags);
+    private final QuoteSketches sketches = new QuoteSketches();
+
+    private static final int[] NO_TAGS = new int[0];
+
+    public QuoteIndexes() {
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * One write to apply to the indexes.
+     * @param id the item id
+     * @param before the keys the item was indexed under, or null for an insert
+     * @param after the keys the item should be indexed under, or null for a delete
+     */
+    public record Change(Long id, IndexKeys before, IndexKeys after) {
+    }
+
+    /**
+     * Swap the category, author and tags of an item for the shared dictionary
+     * instances, so each distinct value is held once however many quotes
+     * repeat it. Items normalize their tags as they are set.
+     */
+    public void intern(Item item) {
+        item.internStrings(categories::intern, authors::intern, tags::intern);
+    }
+
+    /**
+     * Snapshot the indexed fields of an item, encoding category, author and tags
+     */
+    public IndexKeys keysOf(Item item) {
+        int[] tagCodes = NO_TAGS;
+        if (!item.getTags().isEmpty()) {
+            tagCodes = new int[item.getTags().size()];
+            int i = 0;
+            for (String tag : item.getTags()) {
+                tagCodes[i++] = tags.encode(tag);
+            }
+            Arrays.sort(tagCodes);
+        }
+        return new IndexKeys(item.getTitle(), item.getDescription(), item.getStatus(),
+                categories.encode(item.getCategory()), authors.encode(item.getAuthor()), item.isFavorite(),
+                item.getRating(), item.getCreatedAt(), tagCodes);
+    }
+
+    /**
+     * Code of a category, or {@link StringDictionary#NULL_CODE} if no quote has used it since the last clear
+     */
+    public int categoryCode(String category) {
+        return categories.code(category);
+    }
+
+    /**
+     * Code of an author, or {@link StringDictionary#NULL_CODE} if no quote has used it since the last clear
+     */
+    public int authorCode(String author) {
+        return authors.code(author);
+    }
+
+    /**
+     * Whether a category code still stands for {@code category}, which it
+     * stops doing if the dictionaries are cleared
+     */
+    public boolean isCategory(int code, String category) {
+        return category.equals(categories.decode(code));
+    }
+
+    /**
+     * Whether an author code still stands for {@code author}
+     */
+    public boolean isAuthor(int code, String author) {
+        return author.equals(authors.decode(code));
+    }
+
+    /**
+     * Bring the indexes in line with a write.
+     * @param id the item id
+     * @param before the keys the item was indexed under, or null for an insert
+     * @param after the keys the item should be indexed under, or null for a delete
+     */
+    public void update(Long id, IndexKeys before, IndexKeys after) {
+        updateAll(List.of(new Change(id, before, after)));
+    }
+
+    /**
+     * Bring the indexes in line with a batch of writes, taking the lock of
+     * each bitmap-backed index once for the whole batch
+     */
+    public void updateAll(List<Change> changes) {
+        List<TagIndex.Update> tagUpdates = new ArrayList<>(changes.size());
+        List<TrigramIndex.Update> titleUpdates = new ArrayList<>(changes.size());
+        List<FullTextIndex.Update> textUpdates = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            IndexKeys before = change.before();
+            IndexKeys after = change.after();
+            Long id = change.id();
+            if (before == null && after != null) {
+                allIds.add(id);
+            }
+            byStatus.move(before == null ? null : before.status(), after == null ? null : after.status(), id);
+            byCategory.move(before == null ? null : key(before.category()), after == null ? null : key(after.category()), id);
+            byAuthor.move(before == null ? null : key(before.author()), after == null ? null : key(after.author()), id);
+            favorites.move(before != null && before.favorite() ? Boolean.TRUE : null,
+                    after != null && after.favorite() ? Boolean.TRUE : null, id);
+            byRating.move(before == null ? null : ratingKey(before.rating()),
+                    after == null ? null : ratingKey(after.rating()), id);
+            count(before, after);
+            byCreatedAt.move(before == null ? null : before.createdAt(), after == null ? null : after.createdAt(), id);
+            if (after != null) {
+                int ordinal = ordinals.acquire(id);
+                tagUpdates.add(new TagIndex.Update(ordinal, before == null ? NO_TAGS : before.tags(), after.tags()));
+                if (before == null || !Objects.equals(before.title(), after.title())) {
+                    titleUpdates.add(new TrigramIndex.Update(ordinal, after.title()));
+                }
+                if (after.textDiffers(before)) {
+                    textUpdates.add(FullTextIndex.Update.of(ordinal,
+                            after.title(), after.description(),
+                            categories.decode(after.category()), authors.decode(after.author())));
+                }
+            } else if (before != null) {
+                int ordinal = ordinals.acquire(id);
+                tagUpdates.add(new TagIndex.Update(ordinal, before.tags(), NO_TAGS));
+                titleUpdates.add(new TrigramIndex.Update(ordinal, null));
+                textUpdates.add(FullTextIndex.Update.of(ordinal));
+            }
+        }
+        byTag.updateAll(tagUpdates);
+        titles.updateAll(titleUpdates);
+        text.updateAll(textUpdates);
+        for (Change change : changes) {
+            if (change.after() == null) {
+                allIds.remove(change.id());
+                ordinals.release(change.id());
+            }
+        }
+    }
+
+    /**
+     * Move the aggregate counts of an item from its old keys to its new ones,
+     * counting the new values before releasing the old so totals never dip
+     */
+    private void count(IndexKeys before, IndexKeys after) {
+        Item.Status oldStatus = before == null ? null : before.status();
+        Item.Status newStatus = after == null ? null : after.status();
+        if (oldStatus != newStatus) {
+            if (newStatus != null) {
+                statusCounts[newStatus.ordinal()].increment();
+            }
+            if (oldStatus != null) {
+                statusCounts[oldStatus.ordinal()].decrement();
+            }
+        }
+        int oldCategory = before == null ? StringDictionary.NULL_CODE : before.category();
+        int newCategory = after == null ? StringDictionary.NULL_CODE : after.category();
+        if (oldCategory != newCategory) {
+            categoryCounts.add(newCategory, 1);
+            categoryCounts.add(oldCategory, -1);
+            sketches.categoryCounted(categories.decode(newCategory), 1);
+            sketches.categoryCounted(categories.decode(oldCategory), -1);
+        }
+        int oldAuthor = before == null ? StringDictionary.NULL_CODE : before.author();
+        int newAuthor = after == null ? StringDictionary.NULL_CODE : after.author();
+        if (oldAuthor != newAuthor) {
+            sketches.authorWritten(authors.decode(newAuthor));
+        }
+        int[] oldTags = before == null ? NO_TAGS : before.tags();
+        int[] newTags = after == null ? NO_TAGS : after.tags();
+        int i = 0;
+        int j = 0;
+        while (i < oldTags.length || j < newTags.length) {
+            if (j == newTags.length || (i < oldTags.length && oldTags[i] < newTags[j])) {
+                sketches.tagCounted(tags.decode(oldTags[i]), -1);
+                tagCounts.add(oldTags[i++], -1);
+            } else if (i == oldTags.length || newTags[j] < oldTags[i]) {
+                sketches.tagCounted(tags.decode(newTags[j]), 1);
+                tagCounts.add(newTags[j++], 1);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Number of stored quotes per status, leaving out statuses with none
+     */
+    public Map<Item.Status, Long> countByStatus() {
+        Map<Item.Status, Long> counts = new EnumMap<>(Item.Status.class);
+        for (Item.Status status : Item.Status.values()) {
+            long count = statusCounts[status.ordinal()].sum();
+            if (count > 0) {
+                counts.put(status, count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Categories used by at least one stored quote
+     */
+    public Set<String> categories() {
+        Set<String> result = new HashSet<>();
+        for (Integer code : categoryCounts.view().keySet()) {
+            String category = categories.decode(code);
+            if (category != null) {
+                result.add(category);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of stored quotes carrying each normalized tag
+     */
+    public Map<String, Long> tagCounts() {
+        Map<String, Long> result = new HashMap<>();
+        tagCounts.view().forEach((code, count) -> {
+            String tag = tags.decode(code);
+            if (tag != null) {
+                result.put(tag, count);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The {@code limit} tags carried by the most stored quotes, ties by name.
+     * Past {@link RankedCodeCounts#DEFAULT_EXACT_LIMIT} distinct tags the
+     * candidates come from a heavy-hitter summary, as {@link RankedCodeCounts} describes.
+     */
+    public List<String> mostPopularTags(int limit) {
+        return tagCounts.top(limit);
+    }
+
+    /**
+     * Approximate number of distinct authors written since the last {@link #clear()}
+     */
+    public Estimate estimateDistinctAuthors() {
+        return sketches.distinctAuthors();
+    }
+
+    /**
+     * Approximate number of distinct tags written since the last {@link #clear()}
+     */
+    public Estimate estimateDistinctTags() {
+        return sketches.distinctTags();
+    }
+
+    /**
+     * Approximate number of stored quotes carrying a normalized tag
+     */
+    public Estimate estimateTagFrequency(String tag) {
+        return sketches.tagFrequency(tag);
+    }
+
+    /**
+     * Approximate number of stored quotes in a category
+     */
+    public Estimate estimateCategoryFrequency(String category) {
+        return sketches.categoryFrequency(category);
+    }
+
+    /**
+     * Every stored id greater than {@code after}, or all of them if it is null, in ascending order
+     */
+    public NavigableSet<Long> idsAfter(Long after) {
+        return after == null ? allIds : allIds.tailSet(after, false);
+    }
+
+    public Set<Long> idsWithStatus(Item.Status status) {
+        return byStatus.get(status);
+    }
+
+    public NavigableSet<Long> idsWithStatusAfter(Item.Status status, Long after) {
+        return byStatus.after(status, after);
+    }
+
+    public Set<Long> idsInCategory(int category) {
+        return byCategory.get(key(category));
+    }
+
+    public NavigableSet<Long> idsInCategoryAfter(int category, Long after) {
+        return byCategory.after(key(category), after);
+    }
+
+    public Set<Long> idsByAuthor(int author) {
+        return byAuthor.get(key(author));
+    }
+
+    public Set<Long> favoriteIds() {
+        return favorites.get(Boolean.TRUE);
+    }
+
+    /**
+     * Ids with a rating of at least {@code minRating}, lowest rating first,
+     * each with the {@linkplain #ratingKey rating key} it was found under
+     */
+    public Stream<RangeIndex.Entry<Double>> ratingsAtLeast(double minRating) {
+        return byRating.atLeast(ratingKey(minRating));
+    }
+
+    /**
+     * Ids ordered by rating, highest first, each with the
+     * {@linkplain #ratingKey rating key} it was found under
+     */
+    public Stream<RangeIndex.Entry<Double>> ratingsDescending() {
+        return byRating.descending();
+    }
+
+    /**
+     * Ids created strictly between the bounds, oldest first, each with the
+     * creation time it was found under
+     */
+    public Stream<RangeIndex.Entry<LocalDateTime>> createdBetween(LocalDateTime start, LocalDateTime end) {
+        return byCreatedAt.between(start, end);
+    }
+
+    /**
+     * The key a rating is ordered by. {@code -0.0} ranks as {@code 0.0}, and
+     * NaN ranks below every number, tied with negative infinity; a NaN rating
+     * is never at least any minimum.
+     */
+    public static double ratingKey(double rating) {
+        if (Double.isNaN(rating)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return rating == 0.0 ? 0.0 : rating;
+    }
+
+    public RoaringBitmap ordinalsWithTag(String tag) {
+        int code = tags.code(TagIndex.normalize(tag));
+        return code == StringDictionary.NULL_CODE ? new RoaringBitmap() : byTag.withTag(code);
+    }
+
+    public RoaringBitmap ordinalsWithAllTags(Collection<String> wanted) {
+        int[] codes = tagCodes(wanted);
+        if (Arrays.stream(codes).anyMatch(code -> code == StringDictionary.NULL_CODE)) {
+            return new RoaringBitmap();
+        }
+        return byTag.withAllTags(codes);
+    }
+
+    public RoaringBitmap ordinalsWithAnyTag(Collection<String> wanted) {
+        return byTag.withAnyTag(tagCodes(wanted));
+    }
+
+    public RoaringBitmap ordinalsWithTitleContaining(String searchTerm) {
+        return titles.containing(searchTerm);
+    }
+
+    /**
+     * Full-text hits for a query, best first
+     */
+    public List<FullTextIndex.Hit> search(String query, FullTextIndex.Hit after, int limit) {
+        return text.search(query, after, limit);
+    }
+
+    /**
+     * Id behind an ordinal returned by one of the bitmap lookups or a search hit.
+     * Call it within {@link #lookup}, so the ordinal cannot have been reused.
+     */
+    public long idAt(int ordinal) {
+        return ordinals.idAt(ordinal);
+    }
+
+    /**
+     * Run a query that reads ordinals from the indexes and maps them to ids
+     * with {@link #idAt}
+     */
+    public <T> T lookup(Supplier<T> query) {
+        return ordinals.lookup(query);
+    }
+
+    /**
+     * Codes of the normalized tags, with {@link StringDictionary#NULL_CODE} for tags never stored
+     */
+    private int[] tagCodes(Collection<String> wanted) {
+        return TagIndex.normalizeAll(wanted).stream().mapToInt(tags::code).toArray();
+    }
+
+    /**
+     * Hash index key for a dictionary code; unset fields have no bucket
+     */
+    private static Integer key(int code) {
+        return code == StringDictionary.NULL_CODE ? null : code;
+    }
+
+    /**
+     * Clear every index and dictionary. Callers hold off writers; readers that
+     * looked up a code before the clear check it with {@link #isCategory},
+     * {@link #isAuthor} or the stored item before trusting a match.
+     */
+    public void clear() {
+        allIds.clear();
+        byStatus.clear();
+        byCategory.clear();
+        byAuthor.clear();
+        favorites.clear();
+        byRating.clear();
+        byCreatedAt.clear();
+        byTag.clear();
+        text.clear();
+        titles.clear();
+        ordinals.clear();
+        for (LongAdder count : statusCounts) {
+            count.reset();
+        }
+        categoryCounts.clear();
+        tagCounts.clear();
+        sketches.clear();
+        categories.clear();
+        authors.clear();
+        tags.clear();
+    }
+}
@@ -0,0 +1,91 @@
+package edu.trincoll.repository.index;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Ordered secondary index over a comparable key, backed by a skip list of
+ * (key, id) entries. Range queries walk a tail or sub-set view, so they cost
+ * O(log n + k) and yield (key, id) entries in key order, so a caller can
+ * re-check that an item still has the key it was found under.
+ *
+ * @param <K> the indexed key type
+ */
+public class RangeIndex<K extends Comparable<? super K>> {
+
+    /**
+     * An id and the key it was indexed under
+     */
+    public record Entry<K>(K key, long id) {
+    }
+
+    private final NavigableSet<Entry<K>> entries;
+    private final Map<Long, K> current = new ConcurrentHashMap<>();
+
+    public RangeIndex() {
+        Comparator<Entry<K>> order = Comparator.comparing(Entry::key);
+        entries = new ConcurrentSkipListSet<>(order.thenComparingLong(Entry::id));
+    }
+
+    /**
+     * Re-key an id. Either side may be null for an insert or a delete.
+     */
+    public void move(K before, K after, long id) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        if (after != null) {
+            current.put(id, after);
+            entries.add(new Entry<>(after, id));
+        } else {
+            current.remove(id);
+        }
+        if (before != null) {
+            entries.remove(new Entry<>(before, id));
+        }
+    }
+
+    /**
+     * Entries with a key greater than or equal to {@code min}, in ascending key order
+     */
+    public Stream<Entry<K>> atLeast(K min) {
+        return live(entries.tailSet(new Entry<>(min, Long.MIN_VALUE), true));
+    }
+
+    /**
+     * Entries with a key strictly between the bounds, in ascending key order
+     */
+    public Stream<Entry<K>> between(K lowExclusive, K highExclusive) {
+        if (lowExclusive.compareTo(highExclusive) >= 0) {
+            return Stream.empty();
+        }
+        return live(entries.subSet(new Entry<>(lowExclusive, Long.MAX_VALUE), false,
+                new Entry<>(highExclusive, Long.MIN_VALUE), false));
+    }
+
+    /**
+     * All entries, highest key first
+     */
+    public Stream<Entry<K>> descending() {
+        return live(entries.descendingSet());
+    }
+
+    public void clear() {
+        entries.clear();
+        current.clear();
+    }
+
+    /**
+     * While an id is being re-keyed it briefly has two entries. Only the one
+     * matching its current key is reported, so readers never see it twice.
+     */
+    private Stream<Entry<K>> live(NavigableSet<Entry<K>> view) {
+        return view.stream()
+                .filter(entry -> entry.key().equals(current.get(entry.id())));
+    }
+}
@@ -0,0 +1,191 @@
+package edu.trincoll.repository.index;
+
+import edu.trincoll.repository.sketch.SpaceSaving;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Code counts that also keep every referenced code ranked by count, highest
+ * first and ties by name, so the top K values are read off in O(K) instead of
+ * sorting every count on each call. Each count change re-ranks one entry in
+ * O(log n).
+ * <p>
+ * Once more than {@code exactLimit} codes are referenced, the full ranking is
+ * dropped for a {@link SpaceSaving} summary of the {@code summaryCapacity}
+ * heaviest codes, so memory stops growing with the number of distinct values.
+ * The summary only picks the candidates; they are still ordered by their
+ * exact counts. A code referenced more than {@code 1 / summaryCapacity} of
+ * all references is always among them, but rarer codes near the bottom of a
+ * long list may be missed. The exact ranking returns on {@link #clear()}.
+ */
+public class RankedCodeCounts extends CodeCounts {
+
+    /**
+     * Referenced codes above which the ranking falls back to a summary
+     */
+    public static final int DEFAULT_EXACT_LIMIT = 1 << 16;
+    public static final int DEFAULT_SUMMARY_CAPACITY = 1024;
+
+    private record Entry(long count, String name, int code) {
+    }
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::count).reversed()
+            .thenComparing(Entry::name)
+            .thenComparingInt(Entry::code);
+
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>(RANKING);
+    private final StringDictionary names;
+    private final int exactLimit;
+    private final int summaryCapacity;
+    // null while the ranking is exact
+    private volatile SpaceSaving summary;
+    private final ReentrantLock fallbackLock = new ReentrantLock();
+
+    /**
+     * @param names the dictionary the counted codes come from
+     */
+    public RankedCodeCounts(StringDictionary names) {
+        this(names, DEFAULT_EXACT_LIMIT, DEFAULT_SUMMARY_CAPACITY);
+    }
+
+    /**
+     * @param names the dictionary the counted codes come from
+     * @param exactLimit referenced codes above which the ranking falls back to a summary
+     * @param summaryCapacity codes the summary keeps, and so the most {@link #top} returns after the fallback
+     */
+    public RankedCodeCounts(StringDictionary names, int exactLimit, int summaryCapacity) {
+        if (exactLimit < 1 || summaryCapacity < 1) {
+            throw new IllegalArgumentException("Limit and capacity must be positive");
+        }
+        this.names = names;
+        this.exactLimit = exactLimit;
+        this.summaryCapacity = summaryCapacity;
+    }
+
+    /**
+     * The names of the {@code limit} most referenced codes, most referenced
+     * first; none for a limit that is not positive
+     */
+    public List<String> top(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        SpaceSaving candidates = summary;
+        if (candidates != null) {
+            return topOf(candidates, limit);
+        }
+        List<String> result = new ArrayList<>(Math.min(limit, 64));
+        Set<Integer> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (result.size() == limit) {
+                break;
+            }
+            // a code being re-ranked can briefly appear under both counts
+            if (seen.add(entry.code())) {
+                result.add(entry.name());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether the ranking has fallen back to a summary
+     */
+    public boolean isApproximate() {
+        return summary != null;
+    }
+
+    /**
+     * Re-rank a code, inserting it under its new count before dropping the old
+     * entry so concurrent readers never miss it
+     */
+    @Override
+    protected void changed(int code, long before, long after) {
+        SpaceSaving candidates = summary;
+        if (candidates != null) {
+            candidates.add(code, after - before);
+            return;
+        }
+        String name = names.decode(code);
+        if (after > 0) {
+            ranking.add(new Entry(after, name, code));
+        }
+        if (before > 0) {
+            ranking.remove(new Entry(before, name, code));
+        }
+        if (before == 0 && view().size() >= exactLimit) {
+            // the new code is not in the view until this returns, hence >=
+            fallBack();
+        }
+    }
+
+    @Override
+    public void clear() {
+        fallbackLock.lock();
+        try {
+            super.clear();
+            summary = null;
+            ranking.clear();
+        } finally {
+            fallbackLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the full ranking with a summary seeded from its heaviest codes,
+     * whose counts are exact, so the summary starts without error. A change
+     * racing the switch may be missed by the summary; the exact count is
+     * still kept, so at worst the code's candidacy lags behind.
+     */
+    private void fallBack() {
+        fallbackLock.lock();
+        try {
+            if (summary != null) {
+                return;
+            }
+            SpaceSaving candidates = new SpaceSaving(summaryCapacity);
+            Set<Integer> seen = new HashSet<>();
+            for (Entry entry : ranking) {
+                if (seen.size() == summaryCapacity) {
+                    break;
+                }
+                if (seen.add(entry.code())) {
+                    candidates.add(entry.code(), entry.count());
+                }
+            }
+            summary = candidates;
+            ranking.clear();
+        } finally {
+            fallbackLock.unlock();
+        }
+    }
+
+    /**
+     * The summary's candidates ordered as the exact ranking would order them
+     */
+    private List<String> topOf(SpaceSaving candidates, int limit) {
+        Map<Integer, Long> counts = view();
+        List<Entry> entries = new ArrayList<>();
+        for (int code : candidates.keys()) {
+            Long count = counts.get(code);
+            String name = names.decode(code);
+            if (count != null && name != null) {
+                entries.add(new Entry(count, name, code));
+            }
+        }
+        entries.sort(RANKING);
+        List<String> result = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            result.add(entries.get(i).name());
+        }
+        return result;
+    }
+}
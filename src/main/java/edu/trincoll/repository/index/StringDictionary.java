@@ -0,0 +1,108 @@
+package edu.trincoll.repository.index;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent interning dictionary that maps strings to dense int codes.
+ * Codes are assigned in first-seen order and keep their value until
+ * {@link #clear()}, so they can be stored and compared in place of the
+ * strings themselves. Entries are not removed when the last quote using a
+ * value goes away, so the dictionary grows with the distinct values seen
+ * since it was last cleared.
+ */
+public class StringDictionary {
+
+    /**
+     * Code standing for a null string
+     */
+    public static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile String[] values = new String[64];
+    private int size;
+
+    /**
+     * Code for a value, assigning the next one if it has not been seen before
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        lock.lock();
+        try {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            // published after the array slot, so a reader that sees the code also sees the value
+            codes.put(value, size);
+            return size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The shared instance equal to a value, adding it if it has not been seen before
+     */
+    public String intern(String value) {
+        return decode(encode(value));
+    }
+
+    /**
+     * Code for a value without assigning one
+     * @return the code, or {@link #NULL_CODE} if the value is null or has never been encoded
+     */
+    public int code(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+    /**
+     * The value behind a code returned by {@link #encode(String)}
+     * @return the value, or null for {@link #NULL_CODE} or a code issued before the last {@link #clear()}
+     *         and not reassigned since
+     */
+    public String decode(int code) {
+        String[] current = values;
+        return code == NULL_CODE || code >= current.length ? null : current[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * Forget every value and start assigning codes from zero again. A code
+     * issued before the clear may later stand for a different value, so
+     * callers that hold one across a clear must check it still decodes to
+     * the value they looked up.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            codes.clear();
+            values = new String[64];
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
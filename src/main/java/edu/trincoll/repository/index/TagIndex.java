@@ -0,0 +1,186 @@
+package edu.trincoll.repository.index;
+
+import edu.trincoll.model.Item;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from tag code to a compressed bitmap of item ordinals.
+ * Tag codes come from a {@link StringDictionary} and are dense, so posting
+ * lists live in an array indexed by code. AND and OR tag queries become bitmap
+ * intersections and unions, so their cost follows the size of the posting
+ * lists rather than the number of items.
+ */
+public class TagIndex {
+
+    private RoaringBitmap[] postings = new RoaringBitmap[64];
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Normalize a tag the same way {@link Item#addTag} does
+     */
+    public static String normalize(String tag) {
+        return Item.normalizeTag(tag);
+    }
+
+    /**
+     * A change to the tags of one ordinal. Both arrays hold distinct codes in ascending order.
+     */
+    public record Update(int ordinal, int[] before, int[] after) {
+    }
+
+    /**
+     * Replace the tags indexed for an ordinal. Both arrays hold distinct codes in ascending order.
+     * Readers see either the old or the new tags, never a mix.
+     */
+    public void update(int ordinal, int[] before, int[] after) {
+        updateAll(List.of(new Update(ordinal, before, after)));
+    }
+
+    /**
+     * Apply a batch of tag changes under a single acquisition of the write lock
+     */
+    public void updateAll(List<Update> updates) {
+        if (updates.stream().allMatch(update -> Arrays.equals(update.before(), update.after()))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Update update : updates) {
+                apply(update.ordinal(), update.before(), update.after());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Walk both sorted code arrays together, touching only the tags that changed
+     */
+    private void apply(int ordinal, int[] before, int[] after) {
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            if (j == after.length || (i < before.length && before[i] < after[j])) {
+                remove(before[i++], ordinal);
+            } else if (i == before.length || after[j] < before[i]) {
+                add(after[j++], ordinal);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    private void add(int code, int ordinal) {
+        if (code >= postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(code + 1, postings.length * 2));
+        }
+        if (postings[code] == null) {
+            postings[code] = new RoaringBitmap();
+        }
+        postings[code].add(ordinal);
+    }
+
+    private void remove(int code, int ordinal) {
+        RoaringBitmap bitmap = posting(code);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                postings[code] = null;
+            }
+        }
+    }
+
+    /**
+     * Ordinals of items carrying a tag
+     */
+    public RoaringBitmap withTag(int code) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = posting(code);
+            return bitmap == null ? new RoaringBitmap() : bitmap.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinals of items carrying every one of the tags
+     */
+    public RoaringBitmap withAllTags(int[] codes) {
+        if (codes.length == 0) {
+            return new RoaringBitmap();
+        }
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> lists = new ArrayList<>(codes.length);
+            for (int code : codes) {
+                RoaringBitmap bitmap = posting(code);
+                if (bitmap == null) {
+                    return new RoaringBitmap();
+                }
+                lists.add(bitmap);
+            }
+            // intersecting the shortest lists first keeps intermediate results small
+            lists.sort((a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+            return FastAggregation.naive_and(lists.iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinals of items carrying at least one of the tags
+     */
+    public RoaringBitmap withAnyTag(int[] codes) {
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> lists = new ArrayList<>(codes.length);
+            for (int code : codes) {
+                RoaringBitmap bitmap = posting(code);
+                if (bitmap != null) {
+                    lists.add(bitmap);
+                }
+            }
+            return FastAggregation.or(lists.iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(postings, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RoaringBitmap posting(int code) {
+        return code >= 0 && code < postings.length ? postings[code] : null;
+    }
+
+    /**
+     * Normalized, de-duplicated form of a set of tags, skipping nulls
+     */
+    public static Set<String> normalizeAll(Collection<String> tags) {
+        Set<String> normalized = new HashSet<>();
+        for (String tag : tags) {
+            if (tag != null) {
+                normalized.add(normalize(tag));
+            }
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,146 @@
+package edu.trincoll.repository.index;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over lower-cased titles for case-insensitive substring search.
+ * <p>
+ * A title can only contain the query if it contains every trigram of the query,
+ * so intersecting the trigram posting lists yields a small candidate set that is
+ * then verified with a real {@code contains} check. Queries shorter than three
+ * characters have no trigrams and fall back to scanning the precomputed
+ * lower-case titles, which still avoids lower-casing anything per call.
+ */
+public class TrigramIndex {
+
+    private final Map<Long, RoaringBitmap> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private String[] titles = new String[1024];
+    private int highestOrdinal = -1;
+
+    /**
+     * A new title for one ordinal. A null title removes it.
+     */
+    public record Update(int ordinal, String title) {
+    }
+
+    /**
+     * Replace the title indexed for an ordinal. A null title removes it.
+     */
+    public void update(int ordinal, String title) {
+        updateAll(List.of(new Update(ordinal, title)));
+    }
+
+    /**
+     * Apply a batch of title changes under a single acquisition of the write lock
+     */
+    public void updateAll(List<Update> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Update update : updates) {
+                apply(update.ordinal(), update.title() == null ? null : update.title().toLowerCase());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(int ordinal, String lower) {
+        String previous = ordinal < titles.length ? titles[ordinal] : null;
+        if (previous != null) {
+            for (long trigram : trigrams(previous)) {
+                RoaringBitmap bitmap = postings.get(trigram);
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+        if (ordinal >= titles.length) {
+            titles = Arrays.copyOf(titles, Math.max(ordinal + 1, titles.length * 2));
+        }
+        titles[ordinal] = lower;
+        highestOrdinal = Math.max(highestOrdinal, ordinal);
+        if (lower != null) {
+            for (long trigram : trigrams(lower)) {
+                postings.computeIfAbsent(trigram, t -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Ordinals whose title contains the search term, ignoring case
+     */
+    public RoaringBitmap containing(String searchTerm) {
+        String needle = searchTerm.toLowerCase();
+        RoaringBitmap matches = new RoaringBitmap();
+        lock.readLock().lock();
+        try {
+            if (needle.length() < 3) {
+                for (int ordinal = 0; ordinal <= highestOrdinal; ordinal++) {
+                    String title = titles[ordinal];
+                    if (title != null && title.contains(needle)) {
+                        matches.add(ordinal);
+                    }
+                }
+                return matches;
+            }
+            List<RoaringBitmap> lists = new ArrayList<>();
+            for (long trigram : trigrams(needle)) {
+                RoaringBitmap bitmap = postings.get(trigram);
+                if (bitmap == null) {
+                    return matches;
+                }
+                lists.add(bitmap);
+            }
+            lists.sort((a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+            IntIterator candidates = FastAggregation.naive_and(lists.iterator()).getIntIterator();
+            while (candidates.hasNext()) {
+                int ordinal = candidates.next();
+                if (titles[ordinal].contains(needle)) {
+                    matches.add(ordinal);
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            titles = new String[1024];
+            highestOrdinal = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct trigrams of a string, each packed into a long as three 16-bit chars
+     */
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+}
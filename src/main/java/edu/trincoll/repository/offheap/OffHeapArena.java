@@ -0,0 +1,246 @@
+package edu.trincoll.repository.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variable-length byte blobs stored in direct buffers outside the Java heap.
+ * <p>
+ * A blob is addressed by a long reference {@code (chunk << 32) | offset} and
+ * laid out as {@code [int capacity][int length][bytes]}. Capacities are
+ * rounded up to size classes, four per power of two, so at most a quarter of
+ * a blob is slack. Rewriting a blob reuses its space when the new bytes fit;
+ * otherwise, as when a blob is dropped, its space goes on the free list of
+ * its size class and the next blob of that class takes it. Under update and
+ * delete churn the arena therefore stays near its live size instead of
+ * growing. Callers serialize writes; reads may run alongside other reads.
+ */
+final class OffHeapArena {
+
+    static final long NULL_REF = -1;
+    private static final int CHUNK_BYTES = 4 << 20;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MIN_CAPACITY = 16;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final Map<Integer, FreeList> freeLists = new HashMap<>();
+    private long allocatedBytes;
+    private long garbageBytes;
+
+    /**
+     * Store {@code bytes} in place of the blob at {@code ref}
+     * @param ref the current blob, or {@link #NULL_REF}
+     * @param bytes the new contents, or null to drop the blob
+     * @return the reference to use from now on
+     */
+    long replace(long ref, byte[] bytes) {
+        if (bytes == null) {
+            free(ref);
+            return NULL_REF;
+        }
+        if (ref != NULL_REF) {
+            ByteBuffer chunk = chunk(ref);
+            int offset = offset(ref);
+            if (chunk.getInt(offset) >= bytes.length) {
+                if (chunk.getInt(offset + Integer.BYTES) != bytes.length
+                        || chunk.slice(offset + HEADER_BYTES, bytes.length).mismatch(ByteBuffer.wrap(bytes)) != -1) {
+                    chunk.putInt(offset + Integer.BYTES, bytes.length);
+                    chunk.put(offset + HEADER_BYTES, bytes);
+                }
+                return ref;
+            }
+            free(ref);
+        }
+        return allocate(bytes);
+    }
+
+    /**
+     * Contents of a blob, or null for {@link #NULL_REF}
+     */
+    byte[] read(long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer chunk = chunk(ref);
+        int offset = offset(ref);
+        byte[] bytes = new byte[chunk.getInt(offset + Integer.BYTES)];
+        chunk.get(offset + HEADER_BYTES, bytes);
+        return bytes;
+    }
+
+    /**
+     * Binary search a blob holding ascending big-endian ints, without copying it
+     */
+    boolean containsInt(long ref, int value) {
+        if (ref == NULL_REF) {
+            return false;
+        }
+        ByteBuffer chunk = chunk(ref);
+        int start = offset(ref) + HEADER_BYTES;
+        int low = 0;
+        int high = chunk.getInt(offset(ref) + Integer.BYTES) / Integer.BYTES - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int candidate = chunk.getInt(start + mid * Integer.BYTES);
+            if (candidate < value) {
+                low = mid + 1;
+            } else if (candidate > value) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a blob holds only ASCII bytes; false for {@link #NULL_REF}
+     */
+    boolean isAscii(long ref) {
+        if (ref == NULL_REF) {
+            return false;
+        }
+        ByteBuffer chunk = chunk(ref);
+        int start = offset(ref) + HEADER_BYTES;
+        int end = start + chunk.getInt(offset(ref) + Integer.BYTES);
+        for (int i = start; i < end; i++) {
+            if (chunk.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a blob of UTF-8 text contains {@code needle}, ignoring ASCII
+     * case in the blob, without decoding it. The needle must be lower-case
+     * ASCII; since no byte of a multi-byte UTF-8 character is ASCII, a match
+     * can never start or end inside one.
+     */
+    boolean containsAsciiIgnoreCase(long ref, byte[] needle) {
+        if (ref == NULL_REF) {
+            return false;
+        }
+        ByteBuffer chunk = chunk(ref);
+        int start = offset(ref) + HEADER_BYTES;
+        int last = start + chunk.getInt(offset(ref) + Integer.BYTES) - needle.length;
+        for (int i = start; i <= last; i++) {
+            int j = 0;
+            while (j < needle.length && toLowerAscii(chunk.get(i + j)) == needle[j]) {
+                j++;
+            }
+            if (j == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Put a blob's space on the free list of its size class
+     */
+    void free(long ref) {
+        if (ref != NULL_REF) {
+            int capacity = chunk(ref).getInt(offset(ref));
+            freeLists.computeIfAbsent(capacity, ignored -> new FreeList()).push(ref);
+            garbageBytes += HEADER_BYTES + capacity;
+        }
+    }
+
+    /**
+     * Bytes taken from the operating system so far, including free space awaiting reuse
+     */
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Bytes on the free lists, awaiting reuse
+     */
+    long garbageBytes() {
+        return garbageBytes;
+    }
+
+    void clear() {
+        chunks.clear();
+        freeLists.clear();
+        allocatedBytes = 0;
+        garbageBytes = 0;
+    }
+
+    private long allocate(byte[] bytes) {
+        int capacity = sizeClass(bytes.length);
+        FreeList free = freeLists.get(capacity);
+        if (free != null && !free.isEmpty()) {
+            long ref = free.pop();
+            garbageBytes -= HEADER_BYTES + capacity;
+            ByteBuffer chunk = chunk(ref);
+            int offset = offset(ref);
+            chunk.putInt(offset + Integer.BYTES, bytes.length);
+            chunk.put(offset + HEADER_BYTES, bytes);
+            return ref;
+        }
+        int needed = HEADER_BYTES + capacity;
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < needed) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, needed));
+            chunks.add(chunk);
+        }
+        int offset = chunk.position();
+        chunk.putInt(capacity).putInt(bytes.length).put(bytes);
+        chunk.position(offset + needed);
+        allocatedBytes += needed;
+        return ((long) (chunks.size() - 1) << 32) | offset;
+    }
+
+    /**
+     * Smallest size class holding {@code length} bytes. Classes are
+     * {@link #MIN_CAPACITY} and then four evenly spaced steps per power of two.
+     */
+    static int sizeClass(int length) {
+        if (length <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        int step = Integer.highestOneBit(length - 1) >>> 2;
+        return (int) Math.min(Integer.MAX_VALUE - HEADER_BYTES, ((long) length + step - 1) / step * step);
+    }
+
+    private static byte toLowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private ByteBuffer chunk(long ref) {
+        return chunks.get((int) (ref >>> 32));
+    }
+
+    private static int offset(long ref) {
+        return (int) ref;
+    }
+
+    /**
+     * Stack of free blob references of one size class
+     */
+    private static final class FreeList {
+        private long[] refs = new long[8];
+        private int size;
+
+        void push(long ref) {
+            if (size == refs.length) {
+                refs = Arrays.copyOf(refs, size * 2);
+            }
+            refs[size++] = ref;
+        }
+
+        long pop() {
+            return refs[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,673 @@
+package edu.trincoll.repository.offheap;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.Page;
+import edu.trincoll.repository.QuoteRepository;
+import edu.trincoll.repository.VersionConflictException;
+import edu.trincoll.repository.index.FullTextIndex;
+import edu.trincoll.repository.index.QuoteIndexes;
+import edu.trincoll.repository.index.StringDictionary;
+import edu.trincoll.repository.index.TagIndex;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Quote repository that keeps quotes outside the Java heap, selected with the
+ * {@code offheap} profile.
+ * <p>
+ * Status, favorite, rating and timestamps live in primitive columns, titles and
+ * descriptions as UTF-8 blobs, and category, author and tags as dictionary
+ * codes, so a stored quote costs the garbage collector nothing to trace.
+ * {@link Item} objects are built only when a finder returns them; changing a
+ * returned item has no effect until it is saved. Finders scan the columns
+ * they filter on. Tags are stored normalized, as {@link Item#addTag} does.
+ * <p>
+ * Writers take an exclusive lock and readers a shared one, so every finder
+ * sees a consistent store.
+ */
+@Repository
+@Profile("offheap")
+public class OffHeapQuoteRepository implements QuoteRepository {
+
+    private static final Item.Status[] STATUSES = Item.Status.values();
+    private static final byte NO_STATUS = -1;
+    private static final int NO_TIMESTAMP = -1;
+
+    private final QuoteColumns columns = new QuoteColumns();
+    private final OffHeapArena arena = new OffHeapArena();
+    private final RowIndex rows = new RowIndex();
+    private final StringDictionary categories = new StringDictionary();
+    private final StringDictionary authors = new StringDictionary();
+    private final StringDictionary tags = new StringDictionary();
+    private final FullTextIndex text = new FullTextIndex();
+    private final AtomicLong idGenerator = new AtomicLong(1);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] freeRows = new int[16];
+    private int freeCount;
+    private int rowCount;
+
+    @Override
+    public Item save(Item entity) {
+        if (entity.getId() == null) {
+            entity.setId(idGenerator.getAndIncrement());
+        } else {
+            idGenerator.accumulateAndGet(entity.getId() + 1, Math::max);
+        }
+        lock.writeLock().lock();
+        try {
+            write(entity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return entity;
+    }
+
+    /**
+     * Save a batch under a single acquisition of the write lock, reserving ids
+     * for new items as one block
+     */
+    @Override
+    public List<Item> saveAll(List<Item> entities) {
+        long unassigned = 0;
+        long maxExplicitId = 0;
+        for (Item entity : entities) {
+            if (entity.getId() == null) {
+                unassigned++;
+            } else {
+                maxExplicitId = Math.max(maxExplicitId, entity.getId());
+            }
+        }
+        // past every explicit id first, so the reserved block cannot collide with them
+        idGenerator.accumulateAndGet(maxExplicitId + 1, Math::max);
+        long nextId = idGenerator.getAndAdd(unassigned);
+        for (Item entity : entities) {
+            if (entity.getId() == null) {
+                entity.setId(nextId++);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (Item entity : entities) {
+                write(entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new ArrayList<>(entities);
+    }
+
+    /**
+     * Save an item only if one with its id is stored at the expected version,
+     * checking and writing under the write lock
+     */
+    @Override
+    public Optional<Item> replace(Item entity, long expectedVersion) {
+        if (entity.getId() == null) {
+            return Optional.empty();
+        }
+        lock.writeLock().lock();
+        try {
+            int row = rows.get(entity.getId());
+            if (row == RowIndex.ABSENT) {
+                return Optional.empty();
+            }
+            long current = columns.version(row);
+            if (expectedVersion != ANY_VERSION && current != expectedVersion) {
+                throw new VersionConflictException(entity.getId(), expectedVersion, current);
+            }
+            write(entity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return Optional.of(entity);
+    }
+
+    @Override
+    public Optional<Item> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            int row = rows.get(id);
+            return row == RowIndex.ABSENT ? Optional.empty() : Optional.of(materialize(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findAll() {
+        return scan(row -> true);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        lock.writeLock().lock();
+        try {
+            int row = rows.remove(id);
+            if (row == RowIndex.ABSENT) {
+                return;
+            }
+            arena.free(columns.title(row));
+            arena.free(columns.description(row));
+            arena.free(columns.tags(row));
+            columns.setFlags(row, (byte) 0);
+            text.remove(row);
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+            }
+            freeRows[freeCount++] = row;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        if (id == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return rows.get(id) != RowIndex.ABSENT;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            columns.clear();
+            arena.clear();
+            rows.clear();
+            text.clear();
+            categories.clear();
+            authors.clear();
+            tags.clear();
+            freeCount = 0;
+            rowCount = 0;
+            idGenerator.set(1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findByStatus(Item.Status status) {
+        if (status == null) {
+            return new ArrayList<>();
+        }
+        byte code = (byte) status.ordinal();
+        return scan(row -> columns.status(row) == code);
+    }
+
+    /**
+     * Stream every live row, materializing each one as it is reached. Rows
+     * written or deleted after the stream starts may or may not be seen.
+     */
+    @Override
+    public Stream<Item> stream() {
+        int end;
+        lock.readLock().lock();
+        try {
+            end = rowCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return IntStream.range(0, end).mapToObj(row -> {
+            lock.readLock().lock();
+            try {
+                return row < rowCount && live(row) ? materialize(row) : null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }).filter(Objects::nonNull);
+    }
+
+    @Override
+    public Page<Item> findAll(Long after, int limit) {
+        return pageById(row -> true, after, limit);
+    }
+
+    @Override
+    public Page<Item> findByStatus(Item.Status status, Long after, int limit) {
+        if (status == null) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        byte code = (byte) status.ordinal();
+        return pageById(row -> columns.status(row) == code, after, limit);
+    }
+
+    @Override
+    public List<Item> findByCategory(String category) {
+        int code = categories.code(category);
+        if (code == StringDictionary.NULL_CODE) {
+            return new ArrayList<>();
+        }
+        return scan(row -> columns.category(row) == code);
+    }
+
+    @Override
+    public Page<Item> findByCategory(String category, Long after, int limit) {
+        int code = categories.code(category);
+        if (code == StringDictionary.NULL_CODE) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        return pageById(row -> columns.category(row) == code, after, limit);
+    }
+
+    @Override
+    public List<Item> findByTag(String tag) {
+        if (tag == null || tag.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        int code = tags.code(TagIndex.normalize(tag));
+        if (code == StringDictionary.NULL_CODE) {
+            return new ArrayList<>();
+        }
+        return scan(row -> arena.containsInt(columns.tags(row), code));
+    }
+
+    @Override
+    public List<Item> findByAllTags(Set<String> wanted) {
+        if (wanted == null || wanted.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> normalized = TagIndex.normalizeAll(wanted);
+        int[] codes = tagCodes(normalized);
+        if (normalized.isEmpty() || codes.length < normalized.size()) {
+            return new ArrayList<>();
+        }
+        return scan(row -> {
+            long ref = columns.tags(row);
+            for (int code : codes) {
+                if (!arena.containsInt(ref, code)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public List<Item> findByAnyTag(Set<String> wanted) {
+        if (wanted == null || wanted.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int[] codes = tagCodes(TagIndex.normalizeAll(wanted));
+        if (codes.length == 0) {
+            return new ArrayList<>();
+        }
+        return scan(row -> {
+            long ref = columns.tags(row);
+            for (int code : codes) {
+                if (arena.containsInt(ref, code)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public List<Item> findByTitleContaining(String searchTerm) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        String needle = searchTerm.toLowerCase();
+        if (!isAscii(searchTerm) || !isAscii(needle)) {
+            return scan(row -> titleContains(row, needle));
+        }
+        // a non-ASCII title may lower-case to ASCII, as KELVIN SIGN does to k, so only
+        // an all-ASCII title can be matched on its bytes the way String.toLowerCase would
+        byte[] bytes = needle.getBytes(StandardCharsets.US_ASCII);
+        return scan(row -> {
+            long title = columns.title(row);
+            return arena.isAscii(title) ? arena.containsAsciiIgnoreCase(title, bytes) : titleContains(row, needle);
+        });
+    }
+
+    private boolean titleContains(int row, String needle) {
+        String title = string(columns.title(row));
+        return title != null && title.toLowerCase().contains(needle);
+    }
+
+    private static boolean isAscii(String text) {
+        return text.chars().allMatch(c -> c < 0x80);
+    }
+
+    @Override
+    public Page<Item> search(String query, String after, int limit) {
+        if (limit <= 0 || query == null || query.trim().isEmpty()) {
+            return new Page<>(new ArrayList<>(), null);
+        }
+        FullTextIndex.Hit cursor = after == null ? null : FullTextIndex.Hit.fromCursor(after);
+        lock.readLock().lock();
+        try {
+            List<FullTextIndex.Hit> hits = text.search(query, cursor, limit);
+            List<Item> result = new ArrayList<>(hits.size());
+            for (FullTextIndex.Hit hit : hits) {
+                if (live(hit.ordinal())) {
+                    result.add(materialize(hit.ordinal()));
+                }
+            }
+            String nextCursor = hits.size() < limit ? null : hits.get(hits.size() - 1).toCursor();
+            return new Page<>(result, nextCursor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findByAuthor(String author) {
+        if (author == null || author.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        int code = authors.code(author);
+        if (code == StringDictionary.NULL_CODE) {
+            return new ArrayList<>();
+        }
+        return scan(row -> columns.author(row) == code);
+    }
+
+    @Override
+    public List<Item> findFavorites() {
+        return scan(row -> (columns.flags(row) & QuoteColumns.FAVORITE) != 0);
+    }
+
+    @Override
+    public List<Item> findByMinRating(double minRating) {
+        return sorted(row -> columns.rating(row) >= minRating, byRating());
+    }
+
+    @Override
+    public List<Item> findTopRated(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Integer> best = byRating().reversed();
+        lock.readLock().lock();
+        try {
+            // keep the best rows seen so far with the worst of them on top
+            PriorityQueue<Integer> top = new PriorityQueue<>(best.reversed());
+            for (int row = 0; row < rowCount; row++) {
+                if (!live(row)) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(row);
+                } else if (best.compare(row, top.peek()) < 0) {
+                    top.poll();
+                    top.add(row);
+                }
+            }
+            List<Integer> ordered = new ArrayList<>(top);
+            ordered.sort(best);
+            return materializeAll(ordered);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Item> findByDateRange(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            return new ArrayList<>();
+        }
+        long startSeconds = start.toEpochSecond(ZoneOffset.UTC);
+        long endSeconds = end.toEpochSecond(ZoneOffset.UTC);
+        Comparator<Integer> byCreatedAt = Comparator.comparingLong((Integer row) -> columns.createdSeconds(row))
+                .thenComparingInt(columns::createdNanos)
+                .thenComparingLong(columns::id);
+        return sorted(row -> {
+            int nanos = columns.createdNanos(row);
+            if (nanos == NO_TIMESTAMP) {
+                return false;
+            }
+            long seconds = columns.createdSeconds(row);
+            return compare(seconds, nanos, startSeconds, start.getNano()) > 0
+                    && compare(seconds, nanos, endSeconds, end.getNano()) < 0;
+        }, byCreatedAt);
+    }
+
+    /**
+     * Bytes of title, description and tag storage held outside the heap,
+     * including freed space awaiting reuse
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return arena.allocatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write an item into its row, allocating one if it is new. Callers hold the write lock.
+     */
+    private void write(Item item) {
+        long id = item.getId();
+        int row = rows.get(id);
+        boolean existing = row != RowIndex.ABSENT;
+        if (!existing) {
+            row = allocateRow();
+            rows.put(id, row);
+        }
+        item.setVersion(existing ? columns.version(row) + 1 : 1);
+        columns.setId(row, id);
+        columns.setVersion(row, item.getVersion());
+        columns.setStatus(row, item.getStatus() == null ? NO_STATUS : (byte) item.getStatus().ordinal());
+        columns.setFlags(row, (byte) (QuoteColumns.LIVE | (item.isFavorite() ? QuoteColumns.FAVORITE : 0)));
+        columns.setRating(row, item.getRating());
+        LocalDateTime createdAt = item.getCreatedAt();
+        columns.setCreated(row, seconds(createdAt), nanos(createdAt));
+        LocalDateTime updatedAt = item.getUpdatedAt();
+        columns.setUpdated(row, seconds(updatedAt), nanos(updatedAt));
+        columns.setCategory(row, categories.encode(item.getCategory()));
+        columns.setAuthor(row, authors.encode(item.getAuthor()));
+        columns.setTitle(row, arena.replace(existing ? columns.title(row) : OffHeapArena.NULL_REF, utf8(item.getTitle())));
+        columns.setDescription(row, arena.replace(existing ? columns.description(row) : OffHeapArena.NULL_REF,
+                utf8(item.getDescription())));
+        columns.setTags(row, arena.replace(existing ? columns.tags(row) : OffHeapArena.NULL_REF, encodeTags(item.getTags())));
+        text.update(row, item.getTitle(), item.getDescription(), item.getCategory(), item.getAuthor());
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        columns.ensure(rowCount);
+        return rowCount++;
+    }
+
+    /**
+     * Build the API-facing item for a row. Callers hold the read or write lock.
+     */
+    private Item materialize(int row) {
+        Item item = new Item(string(columns.title(row)), string(columns.description(row)));
+        item.setId(columns.id(row));
+        item.setCategory(categories.decode(columns.category(row)));
+        item.setAuthor(authors.decode(columns.author(row)));
+        byte status = columns.status(row);
+        item.setStatus(status == NO_STATUS ? null : STATUSES[status]);
+        item.setFavorite((columns.flags(row) & QuoteColumns.FAVORITE) != 0);
+        item.setRating(columns.rating(row));
+        item.setTags(decodeTags(columns.tags(row)));
+        item.setVersion(columns.version(row));
+        item.restoreTimestamps(timestamp(columns.createdSeconds(row), columns.createdNanos(row)),
+                timestamp(columns.updatedSeconds(row), columns.updatedNanos(row)));
+        return item;
+    }
+
+    private List<Item> materializeAll(List<Integer> ordered) {
+        List<Item> result = new ArrayList<>(ordered.size());
+        for (int row : ordered) {
+            result.add(materialize(row));
+        }
+        return result;
+    }
+
+    private boolean live(int row) {
+        return (columns.flags(row) & QuoteColumns.LIVE) != 0;
+    }
+
+    /**
+     * Materialize every live row that matches, in row order
+     */
+    private List<Item> scan(IntPredicate matches) {
+        lock.readLock().lock();
+        try {
+            List<Item> result = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                if (live(row) && matches.test(row)) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Materialize every live row that matches, in the given order
+     */
+    private List<Item> sorted(IntPredicate matches, Comparator<Integer> order) {
+        lock.readLock().lock();
+        try {
+            List<Integer> matching = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                if (live(row) && matches.test(row)) {
+                    matching.add(row);
+                }
+            }
+            matching.sort(order);
+            return materializeAll(matching);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} matching rows with the smallest ids above {@code after},
+     * chosen with a bounded heap so only the page itself is materialized
+     */
+    private Page<Item> pageById(IntPredicate matches, Long after, int limit) {
+        long floor = after == null ? Long.MIN_VALUE : after;
+        Comparator<Integer> byId = Comparator.comparingLong(columns::id);
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Integer> smallest = new PriorityQueue<>(byId.reversed());
+            for (int row = 0; row < rowCount && limit > 0; row++) {
+                if (!live(row) || columns.id(row) <= floor || !matches.test(row)) {
+                    continue;
+                }
+                if (smallest.size() < limit) {
+                    smallest.add(row);
+                } else if (columns.id(row) < columns.id(smallest.peek())) {
+                    smallest.poll();
+                    smallest.add(row);
+                }
+            }
+            List<Integer> ordered = new ArrayList<>(smallest);
+            ordered.sort(byId);
+            return Page.of(materializeAll(ordered), limit, Item::getId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Comparator<Integer> byRating() {
+        return Comparator.comparingDouble((Integer row) -> QuoteIndexes.ratingKey(columns.rating(row)))
+                .thenComparingLong(columns::id);
+    }
+
+    /**
+     * Codes of the normalized tags that have ever been stored
+     */
+    private int[] tagCodes(Set<String> normalized) {
+        return normalized.stream()
+                .mapToInt(tags::code)
+                .filter(code -> code != StringDictionary.NULL_CODE)
+                .toArray();
+    }
+
+    private byte[] encodeTags(Set<String> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        int[] codes = new int[values.size()];
+        int i = 0;
+        for (String tag : values) {
+            codes[i++] = tags.encode(tag);
+        }
+        Arrays.sort(codes);
+        ByteBuffer bytes = ByteBuffer.allocate(codes.length * Integer.BYTES);
+        bytes.asIntBuffer().put(codes);
+        return bytes.array();
+    }
+
+    private Set<String> decodeTags(long ref) {
+        byte[] bytes = arena.read(ref);
+        Set<String> result = new HashSet<>();
+        if (bytes != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                result.add(tags.decode(buffer.getInt()));
+            }
+        }
+        return result;
+    }
+
+    private String string(long ref) {
+        byte[] bytes = arena.read(ref);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long seconds(LocalDateTime value) {
+        return value == null ? 0 : value.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int nanos(LocalDateTime value) {
+        return value == null ? NO_TIMESTAMP : value.getNano();
+    }
+
+    private static LocalDateTime timestamp(long seconds, int nanos) {
+        return nanos == NO_TIMESTAMP ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static int compare(long seconds, int nanos, long otherSeconds, int otherNanos) {
+        int bySeconds = Long.compare(seconds, otherSeconds);
+        return bySeconds != 0 ? bySeconds : Integer.compare(nanos, otherNanos);
+    }
+}
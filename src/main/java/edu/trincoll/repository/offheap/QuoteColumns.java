@@ -0,0 +1,163 @@
+package edu.trincoll.repository.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-width quote columns in direct buffers. Rows are grouped into
+ * segments of {@link #SEGMENT_ROWS}; within a segment each column is one
+ * contiguous run of primitives, so a scan over one column touches only that
+ * column's memory. Callers serialize writes.
+ */
+final class QuoteColumns {
+
+    static final int SEGMENT_ROWS = 1 << 14;
+    private static final int ROW_MASK = SEGMENT_ROWS - 1;
+    private static final int SEGMENT_SHIFT = Integer.numberOfTrailingZeros(SEGMENT_ROWS);
+
+    static final byte LIVE = 1;
+    static final byte FAVORITE = 2;
+
+    // 8-byte columns first, then 4-byte, then 1-byte, keeping every value aligned
+    private static final int ID = 0;
+    private static final int RATING = ID + Long.BYTES * SEGMENT_ROWS;
+    private static final int CREATED_SECONDS = RATING + Double.BYTES * SEGMENT_ROWS;
+    private static final int UPDATED_SECONDS = CREATED_SECONDS + Long.BYTES * SEGMENT_ROWS;
+    private static final int TITLE = UPDATED_SECONDS + Long.BYTES * SEGMENT_ROWS;
+    private static final int DESCRIPTION = TITLE + Long.BYTES * SEGMENT_ROWS;
+    private static final int TAGS = DESCRIPTION + Long.BYTES * SEGMENT_ROWS;
+    private static final int VERSION = TAGS + Long.BYTES * SEGMENT_ROWS;
+    private static final int CREATED_NANOS = VERSION + Long.BYTES * SEGMENT_ROWS;
+    private static final int UPDATED_NANOS = CREATED_NANOS + Integer.BYTES * SEGMENT_ROWS;
+    private static final int CATEGORY = UPDATED_NANOS + Integer.BYTES * SEGMENT_ROWS;
+    private static final int AUTHOR = CATEGORY + Integer.BYTES * SEGMENT_ROWS;
+    private static final int STATUS = AUTHOR + Integer.BYTES * SEGMENT_ROWS;
+    private static final int FLAGS = STATUS + SEGMENT_ROWS;
+    private static final int SEGMENT_BYTES = FLAGS + SEGMENT_ROWS;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * Make sure storage exists for {@code row}
+     */
+    void ensure(int row) {
+        while ((row >>> SEGMENT_SHIFT) >= segments.size()) {
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_BYTES));
+        }
+    }
+
+    void clear() {
+        segments.clear();
+    }
+
+    long id(int row) {
+        return segment(row).getLong(ID + Long.BYTES * (row & ROW_MASK));
+    }
+
+    void setId(int row, long id) {
+        segment(row).putLong(ID + Long.BYTES * (row & ROW_MASK), id);
+    }
+
+    double rating(int row) {
+        return segment(row).getDouble(RATING + Double.BYTES * (row & ROW_MASK));
+    }
+
+    void setRating(int row, double rating) {
+        segment(row).putDouble(RATING + Double.BYTES * (row & ROW_MASK), rating);
+    }
+
+    long createdSeconds(int row) {
+        return segment(row).getLong(CREATED_SECONDS + Long.BYTES * (row & ROW_MASK));
+    }
+
+    int createdNanos(int row) {
+        return segment(row).getInt(CREATED_NANOS + Integer.BYTES * (row & ROW_MASK));
+    }
+
+    void setCreated(int row, long seconds, int nanos) {
+        segment(row).putLong(CREATED_SECONDS + Long.BYTES * (row & ROW_MASK), seconds)
+                .putInt(CREATED_NANOS + Integer.BYTES * (row & ROW_MASK), nanos);
+    }
+
+    long updatedSeconds(int row) {
+        return segment(row).getLong(UPDATED_SECONDS + Long.BYTES * (row & ROW_MASK));
+    }
+
+    int updatedNanos(int row) {
+        return segment(row).getInt(UPDATED_NANOS + Integer.BYTES * (row & ROW_MASK));
+    }
+
+    void setUpdated(int row, long seconds, int nanos) {
+        segment(row).putLong(UPDATED_SECONDS + Long.BYTES * (row & ROW_MASK), seconds)
+                .putInt(UPDATED_NANOS + Integer.BYTES * (row & ROW_MASK), nanos);
+    }
+
+    long title(int row) {
+        return segment(row).getLong(TITLE + Long.BYTES * (row & ROW_MASK));
+    }
+
+    void setTitle(int row, long ref) {
+        segment(row).putLong(TITLE + Long.BYTES * (row & ROW_MASK), ref);
+    }
+
+    long description(int row) {
+        return segment(row).getLong(DESCRIPTION + Long.BYTES * (row & ROW_MASK));
+    }
+
+    void setDescription(int row, long ref) {
+        segment(row).putLong(DESCRIPTION + Long.BYTES * (row & ROW_MASK), ref);
+    }
+
+    long tags(int row) {
+        return segment(row).getLong(TAGS + Long.BYTES * (row & ROW_MASK));
+    }
+
+    void setTags(int row, long ref) {
+        segment(row).putLong(TAGS + Long.BYTES * (row & ROW_MASK), ref);
+    }
+
+    long version(int row) {
+        return segment(row).getLong(VERSION + Long.BYTES * (row & ROW_MASK));
+    }
+
+    void setVersion(int row, long version) {
+        segment(row).putLong(VERSION + Long.BYTES * (row & ROW_MASK), version);
+    }
+
+    int category(int row) {
+        return segment(row).getInt(CATEGORY + Integer.BYTES * (row & ROW_MASK));
+    }
+
+    void setCategory(int row, int code) {
+        segment(row).putInt(CATEGORY + Integer.BYTES * (row & ROW_MASK), code);
+    }
+
+    int author(int row) {
+        return segment(row).getInt(AUTHOR + Integer.BYTES * (row & ROW_MASK));
+    }
+
+    void setAuthor(int row, int code) {
+        segment(row).putInt(AUTHOR + Integer.BYTES * (row & ROW_MASK), code);
+    }
+
+    byte status(int row) {
+        return segment(row).get(STATUS + (row & ROW_MASK));
+    }
+
+    void setStatus(int row, byte status) {
+        segment(row).put(STATUS + (row & ROW_MASK), status);
+    }
+
+    byte flags(int row) {
+        return segment(row).get(FLAGS + (row & ROW_MASK));
+    }
+
+    void setFlags(int row, byte flags) {
+        segment(row).put(FLAGS + (row & ROW_MASK), flags);
+    }
+
+    private ByteBuffer segment(int row) {
+        return segments.get(row >>> SEGMENT_SHIFT);
+    }
+}
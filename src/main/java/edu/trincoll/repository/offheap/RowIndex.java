@@ -0,0 +1,109 @@
+package edu.trincoll.repository.offheap;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from quote id to row number, with linear probing and
+ * backward-shift deletion so no tombstones build up. Ids and rows are kept in
+ * primitive arrays, avoiding a boxed {@code Long} and map entry per quote.
+ * Callers serialize writes.
+ */
+final class RowIndex {
+
+    static final int ABSENT = -1;
+
+    private long[] ids = new long[16];
+    private int[] rows = filled(16);
+    private int size;
+
+    int get(long id) {
+        int mask = rows.length - 1;
+        for (int slot = hash(id) & mask; rows[slot] != ABSENT; slot = (slot + 1) & mask) {
+            if (ids[slot] == id) {
+                return rows[slot];
+            }
+        }
+        return ABSENT;
+    }
+
+    void put(long id, int row) {
+        if ((size + 1) * 4L > rows.length * 3L) {
+            resize(rows.length * 2);
+        }
+        int mask = rows.length - 1;
+        int slot = hash(id) & mask;
+        while (rows[slot] != ABSENT) {
+            if (ids[slot] == id) {
+                rows[slot] = row;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        rows[slot] = row;
+        size++;
+    }
+
+    /**
+     * @return the row the id was mapped to, or {@link #ABSENT}
+     */
+    int remove(long id) {
+        int mask = rows.length - 1;
+        int slot = hash(id) & mask;
+        while (rows[slot] != ABSENT && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        int row = rows[slot];
+        if (row == ABSENT) {
+            return ABSENT;
+        }
+        // shift later entries of the probe run back into the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; rows[next] != ABSENT; next = (next + 1) & mask) {
+            int home = hash(ids[next]) & mask;
+            boolean movable = gap <= next ? (home <= gap || home > next) : (home <= gap && home > next);
+            if (movable) {
+                ids[gap] = ids[next];
+                rows[gap] = rows[next];
+                gap = next;
+            }
+        }
+        rows[gap] = ABSENT;
+        size--;
+        return row;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        ids = new long[16];
+        rows = filled(16);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = ids;
+        int[] oldRows = rows;
+        ids = new long[capacity];
+        rows = filled(capacity);
+        size = 0;
+        for (int slot = 0; slot < oldRows.length; slot++) {
+            if (oldRows[slot] != ABSENT) {
+                put(oldIds[slot], oldRows[slot]);
+            }
+        }
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int[] filled(int capacity) {
+        int[] array = new int[capacity];
+        Arrays.fill(array, ABSENT);
+        return array;
+    }
+}
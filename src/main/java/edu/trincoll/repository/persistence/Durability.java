@@ -0,0 +1,28 @@
+package edu.trincoll.repository.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helpers for making file replacements survive a crash
+ */
+final class Durability {
+
+    private Durability() {
+    }
+
+    /**
+     * Force the directory holding {@code file}, so a rename into it is on disk.
+     * Platforms that cannot open a directory for this are skipped.
+     */
+    static void forceDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported here; the rename is still atomic, only its durability is left to the OS
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package edu.trincoll.repository.persistence;
+
+import edu.trincoll.model.Item;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compact binary encoding of a quote, shared by the write-ahead log and snapshots.
+ * Strings are written as a length-prefixed UTF-8 byte run, with length -1 for null.
+ * The version comes last; records written before versions were kept end after
+ * the timestamps and read back as version 0, so callers must bound the input
+ * to one record.
+ */
+public final class QuoteCodec {
+
+    private static final Item.Status[] STATUSES = Item.Status.values();
+
+    private QuoteCodec() {
+    }
+
+    public static void write(Item item, DataOutput out) throws IOException {
+        out.writeLong(item.getId());
+        writeString(item.getTitle(), out);
+        writeString(item.getDescription(), out);
+        writeString(item.getCategory(), out);
+        writeString(item.getAuthor(), out);
+        out.writeByte(item.getStatus() == null ? -1 : item.getStatus().ordinal());
+        out.writeBoolean(item.isFavorite());
+        out.writeDouble(item.getRating());
+        Set<String> tags = item.getTags();
+        out.writeInt(tags.size());
+        for (String tag : tags) {
+            writeString(tag, out);
+        }
+        writeTimestamp(item.getCreatedAt(), out);
+        writeTimestamp(item.getUpdatedAt(), out);
+        out.writeLong(item.getVersion());
+    }
+
+    public static Item read(DataInput in) throws IOException {
+        Item item = new Item();
+        item.setId(in.readLong());
+        item.setTitle(readString(in));
+        item.setDescription(readString(in));
+        item.setCategory(readString(in));
+        item.setAuthor(readString(in));
+        byte status = in.readByte();
+        item.setStatus(status < 0 ? null : STATUSES[status]);
+        item.setFavorite(in.readBoolean());
+        item.setRating(in.readDouble());
+        int tagCount = in.readInt();
+        Set<String> tags = new HashSet<>(tagCount * 2);
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(readString(in));
+        }
+        item.setTags(tags);
+        LocalDateTime createdAt = readTimestamp(in);
+        item.restoreTimestamps(createdAt, readTimestamp(in));
+        try {
+            item.setVersion(in.readLong());
+        } catch (EOFException e) {
+            // an older record without a version
+        }
+        return item;
+    }
+
+    static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTimestamp(LocalDateTime value, DataOutput out) throws IOException {
+        out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(value.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+}
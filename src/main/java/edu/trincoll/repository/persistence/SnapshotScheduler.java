@@ -0,0 +1,47 @@
+package edu.trincoll.repository.persistence;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a snapshot task at a fixed delay on a background thread. A failed
+ * snapshot is reported and retried at the next interval.
+ */
+public class SnapshotScheduler implements Closeable {
+
+    private static final System.Logger LOG = System.getLogger(SnapshotScheduler.class.getName());
+
+    private final ScheduledExecutorService executor;
+
+    public SnapshotScheduler(Runnable snapshot, Duration interval) {
+        this(snapshot, interval, runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param threads creates the thread snapshots are written from
+     */
+    public SnapshotScheduler(Runnable snapshot, Duration interval, ThreadFactory threads) {
+        executor = Executors.newSingleThreadScheduledExecutor(threads);
+        long millis = Math.max(1, interval.toMillis());
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot.run();
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Snapshot failed", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
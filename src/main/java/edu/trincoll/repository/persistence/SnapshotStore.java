@@ -0,0 +1,326 @@
+package edu.trincoll.repository.persistence;
+
+import edu.trincoll.model.Item;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshots of the whole quote store, written and read through
+ * memory-mapped files.
+ * <p>
+ * Layout (version 2): a 48-byte header {@code [int magic][int version]
+ * [long walPosition][long logId][long nextId][long count][long crc32]}
+ * followed by {@code count} records of {@code [int length][QuoteCodec bytes]}.
+ * The CRC covers every record byte. Version 1 snapshots lack the log id and
+ * are still read, with id 0. A snapshot is written to a temporary file,
+ * forced to disk and then atomically renamed, so a crash never leaves a
+ * partial snapshot under the final name. Temporary files a crash left behind
+ * are deleted when the store is opened.
+ * <p>
+ * Snapshots are fuzzy: writers keep running while one is taken. The WAL
+ * position is recorded before the store is read, and recovery replays the
+ * log from that position. Every log record is a full-state put or delete, so
+ * replaying one that the snapshot already reflects is harmless, and the result
+ * is the same as a consistent copy-on-write view taken at that position.
+ */
+public class SnapshotStore {
+
+    /**
+     * What a snapshot records about the log and id generator
+     * @param walPosition log position to resume replay from
+     * @param logId {@link WriteAheadLog#getLogId() id} of the log that position belongs to
+     * @param nextId the id generator's value when the snapshot began
+     * @param count number of quotes in the snapshot
+     */
+    public record Header(long walPosition, long logId, long nextId, long count) {
+    }
+
+    static final int MAGIC = 0x51534E50; // "QSNP"
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 48;
+    private static final int V1_HEADER_BYTES = 40;
+    private static final long REGION_BYTES = 64L << 20;
+    private static final long READ_WINDOW_BYTES = 1L << 30;
+    private static final String SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final int retained;
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    /**
+     * @param directory where snapshot files live
+     * @param retained how many of the newest snapshots to keep; older ones are deleted
+     */
+    public SnapshotStore(Path directory, int retained) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.retained = Math.max(1, retained);
+        deleteTemporaryFiles();
+    }
+
+    /**
+     * Write a snapshot of the given quotes
+     * @return the path of the new snapshot file
+     */
+    public Path write(long walPosition, long logId, long nextId, Iterable<Item> items) throws IOException {
+        // names sort oldest to newest; the stamp is bumped so two snapshots in one millisecond stay distinct
+        long stamp = lastStamp.accumulateAndGet(System.currentTimeMillis(), (last, now) -> Math.max(last + 1, now));
+        String name = String.format("quotes-%013d-%016x", stamp, walPosition);
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        Path target = directory.resolve(name + SUFFIX);
+        try {
+            writeFile(temp, walPosition, logId, nextId, items);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Durability.forceDirectory(target);
+        prune();
+        return target;
+    }
+
+    /**
+     * Smallest log position any retained snapshot of the given log replays
+     * from. Log records before it are covered by every snapshot recovery
+     * might fall back to. Only headers are read.
+     * @return that position, or 0 if no snapshot belongs to the log
+     */
+    public long earliestReplayPosition(long logId) throws IOException {
+        long earliest = Long.MAX_VALUE;
+        for (Path snapshot : snapshots()) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                Optional<Header> header = readHeader(channel).map(Layout::header);
+                if (header.isEmpty()) {
+                    // unreadable, so recovery would fall back past it to older snapshots we no longer have
+                    return 0;
+                }
+                if (header.get().logId() == logId) {
+                    earliest = Math.min(earliest, header.get().walPosition());
+                }
+            } catch (NoSuchFileException e) {
+                // pruned since it was listed, so recovery can no longer fall back to it
+            }
+        }
+        return earliest == Long.MAX_VALUE ? 0 : earliest;
+    }
+
+    private static void writeFile(Path temp, long walPosition, long logId, long nextId, Iterable<Item> items)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedWriter out = new MappedWriter(channel, HEADER_BYTES);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+            DataOutputStream encoder = new DataOutputStream(buffer);
+            CRC32 crc = new CRC32();
+            long count = 0;
+            for (Item item : items) {
+                buffer.reset();
+                QuoteCodec.write(item, encoder);
+                byte[] record = buffer.toByteArray();
+                out.putInt(record.length);
+                out.put(record);
+                crc.update(record);
+                count++;
+            }
+            long end = out.finish();
+            channel.truncate(end);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(VERSION)
+                    .putLong(walPosition).putLong(logId).putLong(nextId).putLong(count).putLong(crc.getValue())
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Load the newest intact snapshot, passing each quote to {@code sink}.
+     * Snapshots that fail their checksum are skipped in favour of older ones.
+     * @return the header of the snapshot loaded, or empty if there is none
+     */
+    public Optional<Header> loadLatest(Consumer<Item> sink) throws IOException {
+        for (Path snapshot : snapshots()) {
+            try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                Optional<Layout> layout = verify(channel);
+                if (layout.isPresent()) {
+                    read(channel, layout.get().headerBytes(), sink);
+                    return Optional.of(layout.get().header());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Snapshot files, newest first
+     */
+    List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                    .toList();
+        }
+    }
+
+    /**
+     * Delete snapshots a crash interrupted before they were renamed into place
+     */
+    private void deleteTemporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void prune() throws IOException {
+        List<Path> snapshots = snapshots();
+        for (Path old : snapshots.subList(Math.min(retained, snapshots.size()), snapshots.size())) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    /**
+     * A snapshot's header as stored: what it records, its length and the checksum of its records
+     */
+    private record Layout(Header header, int headerBytes, long checksum) {
+    }
+
+    private static Optional<Layout> readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < V1_HEADER_BYTES || header.getInt() != MAGIC) {
+            return Optional.empty();
+        }
+        int version = header.getInt();
+        if (version == 1) {
+            Header result = new Header(header.getLong(), 0, header.getLong(), header.getLong());
+            return Optional.of(new Layout(result, V1_HEADER_BYTES, header.getLong()));
+        }
+        if (version != VERSION || header.remaining() < HEADER_BYTES - Integer.BYTES * 2) {
+            return Optional.empty();
+        }
+        Header result = new Header(header.getLong(), header.getLong(), header.getLong(), header.getLong());
+        return Optional.of(new Layout(result, HEADER_BYTES, header.getLong()));
+    }
+
+    private static Optional<Layout> verify(FileChannel channel) throws IOException {
+        long size = channel.size();
+        Optional<Layout> layout = readHeader(channel);
+        if (layout.isEmpty()) {
+            return layout;
+        }
+        int headerBytes = layout.get().headerBytes();
+        CRC32 crc = new CRC32();
+        for (long position = headerBytes; position < size; ) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(size - position, READ_WINDOW_BYTES));
+            int consumed = 0;
+            while (window.remaining() >= Integer.BYTES) {
+                int length = window.getInt(consumed);
+                if (window.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                window.position(consumed + Integer.BYTES).limit(consumed + Integer.BYTES + length);
+                crc.update(window);
+                consumed += Integer.BYTES + length;
+                window.limit(window.capacity()).position(consumed);
+            }
+            if (consumed == 0) {
+                return Optional.empty();
+            }
+            position += consumed;
+        }
+        return crc.getValue() == layout.get().checksum() ? layout : Optional.empty();
+    }
+
+    private static void read(FileChannel channel, int headerBytes, Consumer<Item> sink) throws IOException {
+        long size = channel.size();
+        for (long position = headerBytes; position < size; ) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(size - position, READ_WINDOW_BYTES));
+            int consumed = 0;
+            while (window.remaining() >= Integer.BYTES) {
+                int length = window.getInt(consumed);
+                if (window.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                window.get(consumed + Integer.BYTES, record);
+                sink.accept(QuoteCodec.read(new DataInputStream(new ByteArrayInputStream(record))));
+                consumed += Integer.BYTES + length;
+                window.position(consumed);
+            }
+            position += consumed;
+        }
+    }
+
+    /**
+     * Sequential writer that maps a file one region at a time, growing it as
+     * regions fill up. Each full region is forced before the next is mapped.
+     */
+    private static final class MappedWriter {
+        private final FileChannel channel;
+        private MappedByteBuffer region;
+        private long regionStart;
+
+        MappedWriter(FileChannel channel, long start) throws IOException {
+            this.channel = channel;
+            map(start, REGION_BYTES);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            region.putInt(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            ensure(bytes.length);
+            region.put(bytes);
+        }
+
+        /**
+         * Force the last mapped region to disk
+         * @return the file position just past the last byte written
+         */
+        long finish() {
+            region.force();
+            return regionStart + region.position();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (region.remaining() < bytes) {
+                region.force();
+                map(regionStart + region.position(), Math.max(REGION_BYTES, bytes));
+            }
+        }
+
+        private void map(long start, long size) throws IOException {
+            region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+            regionStart = start;
+        }
+    }
+}
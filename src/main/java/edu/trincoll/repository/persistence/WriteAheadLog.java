@@ -0,0 +1,499 @@
+package edu.trincoll.repository.persistence;
+
+import edu.trincoll.model.Item;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of repository writes, replayed on startup to rebuild the store.
+ * <p>
+ * The file starts with a 24-byte header {@code [int magic][int version]
+ * [long logId][long startPosition]}, followed by records framed as
+ * {@code [int length][int crc32][byte type][payload]}. Positions are logical:
+ * they keep counting across {@link #truncateBefore(long)}, which drops the
+ * records a snapshot already covers, so a position saved in a snapshot stays
+ * valid. The log id is drawn at random when a log file is created, so a
+ * snapshot can tell whether a log is the one it was taken against.
+ * Files written before the header existed are read with id 0 from position 0.
+ * <p>
+ * Appends go to the OS page cache under a short lock; durability is governed by
+ * the {@link FsyncPolicy}. With {@link FsyncPolicy#ALWAYS} writers wait in
+ * {@link #awaitDurable(long)} and are group-committed: whichever writer gets to
+ * fsync first makes every record appended before it durable, so the others
+ * return without forcing again.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * When appended records are forced to disk
+     */
+    public enum FsyncPolicy {
+        /** Every write waits until it is on disk, with concurrent writers sharing one fsync */
+        ALWAYS,
+        /** A background thread forces the log on a fixed interval */
+        INTERVAL,
+        /** The operating system decides when to flush */
+        OS
+    }
+
+    /**
+     * Receives replayed records in log order
+     */
+    public interface Replayer {
+        void save(Item item);
+
+        void delete(long id);
+
+        void deleteAll();
+    }
+
+    private static final System.Logger LOG = System.getLogger(WriteAheadLog.class.getName());
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final byte DELETE_ALL = 3;
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAGIC = 0x5157414C; // "QWAL"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 24;
+    private static final long REPLAY_WINDOW_BYTES = 1L << 30;
+
+    private final Path path;
+    // replaced only by truncateBefore, under both locks
+    private FileChannel channel;
+    private long logId;
+    private int fileHeaderBytes;
+    private long startPosition;
+    private final FsyncPolicy policy;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private long writePosition;
+    private volatile long durablePosition;
+
+    public WriteAheadLog(Path path, FsyncPolicy policy, Duration fsyncInterval) throws IOException {
+        this(path, policy, fsyncInterval, runnable -> {
+            Thread thread = new Thread(runnable, "wal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param flusherThreads creates the thread that forces the log under {@link FsyncPolicy#INTERVAL}
+     */
+    public WriteAheadLog(Path path, FsyncPolicy policy, Duration fsyncInterval, ThreadFactory flusherThreads)
+            throws IOException {
+        this.path = path;
+        this.policy = policy;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        readFileHeader();
+        this.writePosition = validLength();
+        channel.truncate(physical(writePosition));
+        channel.position(physical(writePosition));
+        this.durablePosition = writePosition;
+        if (policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(flusherThreads);
+            long millis = Math.max(1, fsyncInterval.toMillis());
+            flusher.scheduleWithFixedDelay(() -> {
+                // an exception escaping the task would cancel the schedule for good
+                try {
+                    awaitDurable(currentPosition());
+                } catch (RuntimeException e) {
+                    LOG.log(System.Logger.Level.WARNING, "Could not fsync write-ahead log " + path
+                            + "; retrying at the next interval", e);
+                }
+            }, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Identity of this log, fixed when its file was created
+     */
+    public long getLogId() {
+        return logId;
+    }
+
+    /**
+     * Position of the first record still in the log
+     */
+    public long startPosition() {
+        appendLock.lock();
+        try {
+            return startPosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Log a save of the item in its current state
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    public long appendSave(Item item) {
+        return appendSaves(List.of(item));
+    }
+
+    /**
+     * Log a batch of saves with a single write
+     * @return the log position to pass to {@link #awaitDurable(long)}
+     */
+    public long appendSaves(List<Item> items) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * items.size());
+        for (Item item : items) {
+            frame(SAVE, payloadOf(item), bytes);
+        }
+        return append(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    public long appendDelete(long id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        frame(DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).array(), bytes);
+        return append(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    public long appendDeleteAll() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        frame(DELETE_ALL, new byte[0], bytes);
+        return append(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * Block until everything up to {@code position} is on disk. Only
+     * {@link FsyncPolicy#ALWAYS} waits; the other policies return immediately.
+     */
+    public void sync(long position) {
+        if (policy == FsyncPolicy.ALWAYS) {
+            awaitDurable(position);
+        }
+    }
+
+    /**
+     * Replay every record from {@code position} to the end of the log. The log
+     * is read through memory-mapped windows rather than one read call per record.
+     * @return the position just past the last record replayed
+     */
+    public long replay(long position, Replayer replayer) throws IOException {
+        if (position < startPosition()) {
+            throw new IllegalArgumentException("Position " + position + " is before the start of the log");
+        }
+        long end = currentPosition();
+        while (position < end) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, physical(position),
+                    Math.min(end - position, REPLAY_WINDOW_BYTES));
+            int consumed = 0;
+            while (window.remaining() >= HEADER_BYTES) {
+                int length = window.getInt(consumed);
+                if (window.remaining() < HEADER_BYTES + length) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                window.get(consumed + HEADER_BYTES, record);
+                apply(record, replayer);
+                consumed += HEADER_BYTES + length;
+                window.position(consumed);
+            }
+            if (consumed == 0) {
+                throw new IOException("Write-ahead log record at " + position + " exceeds the replay window");
+            }
+            position += consumed;
+        }
+        return position;
+    }
+
+    /**
+     * Position just past the last appended record
+     */
+    public long currentPosition() {
+        appendLock.lock();
+        try {
+            return writePosition;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Drop every record before {@code position}, once a durable snapshot
+     * covers them. The records after it are copied to a new file that then
+     * replaces the log atomically, so a crash leaves either the old file or
+     * the new one. Appends and syncs wait meanwhile; the copy is only the
+     * part of the log written since the snapshot.
+     */
+    public void truncateBefore(long position) throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            position = Math.min(position, writePosition);
+            if (position > startPosition) {
+                rewriteFrom(position);
+            }
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Give the log a fresh id, so snapshots taken against it so far no longer
+     * claim any of its positions. Used when a snapshot is ahead of the log:
+     * new records would otherwise reuse positions that snapshot says it covers.
+     */
+    public void renewLogId() throws IOException {
+        syncLock.lock();
+        appendLock.lock();
+        try {
+            if (fileHeaderBytes == 0) {
+                rewriteFrom(startPosition);
+            }
+            long renewed = newLogId();
+            ByteBuffer id = ByteBuffer.allocate(Long.BYTES).putLong(0, renewed);
+            channel.write(id, Integer.BYTES * 2);
+            channel.force(true);
+            logId = renewed;
+        } finally {
+            appendLock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        awaitDurable(currentPosition());
+        channel.close();
+    }
+
+    /**
+     * Replace the log file with one holding a header and the records from
+     * {@code position} on. Callers hold both locks.
+     */
+    private void rewriteFrom(long position) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel rolled = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeFileHeader(rolled, logId, position);
+            long from = physical(position);
+            long remaining = physical(writePosition) - from;
+            while (remaining > 0) {
+                long copied = channel.transferTo(from, remaining, rolled);
+                from += copied;
+                remaining -= copied;
+            }
+            rolled.force(true);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            rolled.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Durability.forceDirectory(path);
+        channel.close();
+        channel = rolled;
+        fileHeaderBytes = FILE_HEADER_BYTES;
+        startPosition = position;
+        durablePosition = writePosition;
+    }
+
+    /**
+     * Write whole frames at the end of the log. If the write fails, whatever
+     * part of it reached the file is cut off again, so a failed append never
+     * leaves a torn frame in front of later records.
+     */
+    private long append(ByteBuffer frames) {
+        appendLock.lock();
+        long start = writePosition;
+        try {
+            while (frames.hasRemaining()) {
+                writePosition += channel.write(frames);
+            }
+            return writePosition;
+        } catch (IOException e) {
+            writePosition = start;
+            try {
+                channel.truncate(physical(start));
+                channel.position(physical(start));
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw new UncheckedIOException("Could not append to write-ahead log " + path, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // another writer may have forced our record while we queued for the lock
+            if (durablePosition >= position) {
+                return;
+            }
+            long target = currentPosition();
+            channel.force(false);
+            durablePosition = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not fsync write-ahead log " + path, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private static byte[] payloadOf(Item item) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            QuoteCodec.write(item, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void frame(byte type, byte[] payload, ByteArrayOutputStream out) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + 1)
+                .putInt(payload.length + 1)
+                .putInt((int) crc.getValue())
+                .put(type);
+        out.writeBytes(header.array());
+        out.writeBytes(payload);
+    }
+
+    private static void apply(byte[] record, Replayer replayer) throws IOException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        switch (record[0]) {
+            case SAVE -> replayer.save(QuoteCodec.read(payload));
+            case DELETE -> replayer.delete(payload.readLong());
+            case DELETE_ALL -> replayer.deleteAll();
+            default -> throw new IOException("Unknown write-ahead log record type " + record[0]);
+        }
+    }
+
+    /**
+     * File offset of a log position
+     */
+    private long physical(long position) {
+        return fileHeaderBytes + position - startPosition;
+    }
+
+    /**
+     * Read the file header, writing one with a fresh log id if the file is
+     * new or was cut short before its header was complete
+     */
+    private void readFileHeader() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        boolean hasMagic = header.remaining() >= Integer.BYTES && header.getInt(0) == MAGIC;
+        if (hasMagic && size >= FILE_HEADER_BYTES) {
+            if (header.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("Unsupported write-ahead log version " + header.getInt(Integer.BYTES));
+            }
+            logId = header.getLong(Integer.BYTES * 2);
+            startPosition = header.getLong(Integer.BYTES * 2 + Long.BYTES);
+            fileHeaderBytes = FILE_HEADER_BYTES;
+        } else if (size == 0 || hasMagic) {
+            logId = newLogId();
+            startPosition = 0;
+            fileHeaderBytes = FILE_HEADER_BYTES;
+            channel.truncate(0);
+            writeFileHeader(channel, logId, 0);
+            channel.force(true);
+        } else {
+            // a log from before the header was introduced
+            logId = 0;
+            startPosition = 0;
+            fileHeaderBytes = 0;
+        }
+    }
+
+    private static void writeFileHeader(FileChannel channel, long logId, long startPosition) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES)
+                .putInt(MAGIC).putInt(VERSION).putLong(logId).putLong(startPosition)
+                .flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.position(FILE_HEADER_BYTES);
+    }
+
+    private static long newLogId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    /**
+     * Position just past the intact prefix of the log. A crash can leave a
+     * torn record at the tail; everything from the first incomplete or corrupt
+     * frame on is discarded when the log is opened. Only the records since
+     * the last {@link #truncateBefore(long)} are read.
+     */
+    private long validLength() throws IOException {
+        long size = channel.size();
+        long offset = fileHeaderBytes;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset + HEADER_BYTES <= size) {
+            header.clear();
+            channel.read(header, offset);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || offset + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            channel.read(record, offset + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(record.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return startPosition + offset - fileHeaderBytes;
+    }
+}
@@ -0,0 +1,72 @@
+package edu.trincoll.repository.sketch;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-Min frequency sketch (Cormode and Muthukrishnan, 2005) in the strict
+ * turnstile model: counts may go down as well as up as long as no true count
+ * becomes negative. With width {@code w = e / epsilon} and depth
+ * {@code d = ln(1 / delta)}, an estimate never undercounts and overcounts by
+ * at most {@code epsilon * N} with probability {@code 1 - delta}, where N is
+ * the total of all counts. Memory is {@code w * d} longs whatever the number
+ * of distinct values. Updates are lock-free and may run concurrently.
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counters;
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * @param epsilon largest overcount as a fraction of the total count
+     * @param delta probability that an estimate exceeds that bound
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("Epsilon and delta must be between 0 and 1");
+        }
+        // rounded up to a power of two so a row index is a mask, which only tightens the bound
+        this.width = Integer.highestOneBit((int) Math.ceil(Math.E / epsilon) - 1) << 1;
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    public void add(String value, long delta) {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters.addAndGet(row * width + ((h1 + row * h2) & (width - 1)), delta);
+        }
+        total.add(delta);
+    }
+
+    public long estimate(String value) {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(row * width + ((h1 + row * h2) & (width - 1))));
+        }
+        return Math.max(0, min);
+    }
+
+    /**
+     * The estimate with its one-sided bound; the true count lies in
+     * {@code [value - errorBound, value]} with the sketch's confidence
+     */
+    public Estimate toEstimate(String value) {
+        long bound = (long) Math.ceil(Math.E / width * total.sum());
+        return new Estimate(estimate(value), bound, 1 - Math.exp(-depth));
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        total.reset();
+    }
+}
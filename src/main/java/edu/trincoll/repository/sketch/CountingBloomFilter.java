@@ -0,0 +1,118 @@
+package edu.trincoll.repository.sketch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter over {@code long} keys (Fan et al., 2000). Each key
+ * increments {@value #HASHES} four-bit counters, so keys can be removed as well
+ * as added. With {@value #COUNTERS_PER_KEY} counters per key at capacity the
+ * false positive rate is about 0.8%, for five bytes per key. There are never
+ * false negatives: a counter that reaches 15 sticks there rather than risk
+ * being decremented to zero while other keys still need it.
+ * <p>
+ * Adds and removes are lock-free. A key must only be removed if it was added.
+ */
+public class CountingBloomFilter {
+
+    public static final int MAX_CAPACITY = 1 << 26;
+    static final int HASHES = 7;
+    static final int COUNTERS_PER_KEY = 10;
+    private static final int COUNTER_BITS = 4;
+    private static final long SATURATED = (1L << COUNTER_BITS) - 1;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray words;
+    private final AtomicLong keys = new AtomicLong();
+
+    /**
+     * @param capacity number of keys the filter holds at its designed false positive rate
+     */
+    public CountingBloomFilter(int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^26");
+        }
+        int counters = Math.max(64, Integer.highestOneBit(capacity * COUNTERS_PER_KEY - 1) << 1);
+        this.capacity = capacity;
+        this.mask = counters - 1;
+        this.words = new AtomicLongArray(counters / (Long.SIZE / COUNTER_BITS));
+    }
+
+    public void add(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            adjust((h1 + i * h2) & mask, 1);
+        }
+        keys.incrementAndGet();
+    }
+
+    public void remove(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            adjust((h1 + i * h2) & mask, -1);
+        }
+        keys.decrementAndGet();
+    }
+
+    /**
+     * @return false if the key is certainly absent, true if it may be present
+     */
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            if (counter((h1 + i * h2) & mask) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether more keys are held than the filter was sized for, so its false
+     * positive rate is above the designed one
+     */
+    public boolean isOverCapacity() {
+        return keys.get() > capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private long counter(int index) {
+        int shift = (index & 15) * COUNTER_BITS;
+        return (words.get(index >>> 4) >>> shift) & SATURATED;
+    }
+
+    private void adjust(int index, int delta) {
+        int word = index >>> 4;
+        int shift = (index & 15) * COUNTER_BITS;
+        while (true) {
+            long current = words.get(word);
+            long count = (current >>> shift) & SATURATED;
+            if (count == SATURATED || (count == 0 && delta < 0)) {
+                return;
+            }
+            long updated = current + ((long) delta << shift);
+            if (words.compareAndSet(word, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
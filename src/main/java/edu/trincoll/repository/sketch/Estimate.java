@@ -0,0 +1,19 @@
+package edu.trincoll.repository.sketch;
+
+/**
+ * An approximate answer: the true value lies within {@code value ± errorBound}
+ * with probability at least {@code confidence}.
+ *
+ * @param value the estimate
+ * @param errorBound the largest expected distance from the true value
+ * @param confidence probability that the true value is within the bound
+ */
+public record Estimate(long value, long errorBound, double confidence) {
+
+    /**
+     * An exact answer, for implementations that compute the value directly
+     */
+    public static Estimate exact(long value) {
+        return new Estimate(value, 0, 1.0);
+    }
+}
@@ -0,0 +1,26 @@
+package edu.trincoll.repository.sketch;
+
+/**
+ * 64-bit string hashing for the sketches. {@code String.hashCode} has only
+ * 32 bits and weak low bits, which would bias HyperLogLog registers; this is
+ * FNV-1a over the UTF-16 code units followed by the MurmurHash3 finalizer.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,73 @@
+package edu.trincoll.repository.sketch;
+
+/**
+ * Fixed-size sketches behind the approximate analytics, fed from every
+ * repository write. Together they use about 450 KiB however many quotes,
+ * authors or tags there are.
+ * <ul>
+ *   <li>distinct authors and tags: HyperLogLog, 0.81% standard error, counting
+ *       every value written since the store was last cleared</li>
+ *   <li>tag and category frequency: Count-Min, overcount at most 0.07% of all
+ *       tag (or category) references with 99.3% confidence, following deletes</li>
+ * </ul>
+ */
+public class QuoteSketches {
+
+    private static final int PRECISION = 14;
+    private static final double EPSILON = 0.001;
+    private static final double DELTA = 0.01;
+
+    private final HyperLogLog authors = new HyperLogLog(PRECISION);
+    private final HyperLogLog tags = new HyperLogLog(PRECISION);
+    private final CountMinSketch tagFrequency = new CountMinSketch(EPSILON, DELTA);
+    private final CountMinSketch categoryFrequency = new CountMinSketch(EPSILON, DELTA);
+
+    public void authorWritten(String author) {
+        if (author != null) {
+            authors.add(author);
+        }
+    }
+
+    /**
+     * @param tag a normalized tag
+     * @param delta +1 when a quote gains the tag, -1 when it loses it
+     */
+    public void tagCounted(String tag, long delta) {
+        if (delta > 0) {
+            tags.add(tag);
+        }
+        tagFrequency.add(tag, delta);
+    }
+
+    /**
+     * @param delta +1 when a quote enters the category, -1 when it leaves
+     */
+    public void categoryCounted(String category, long delta) {
+        if (category != null) {
+            categoryFrequency.add(category, delta);
+        }
+    }
+
+    public Estimate distinctAuthors() {
+        return authors.toEstimate();
+    }
+
+    public Estimate distinctTags() {
+        return tags.toEstimate();
+    }
+
+    public Estimate tagFrequency(String tag) {
+        return tagFrequency.toEstimate(tag);
+    }
+
+    public Estimate categoryFrequency(String category) {
+        return categoryFrequency.toEstimate(category);
+    }
+
+    public void clear() {
+        authors.clear();
+        tags.clear();
+        tagFrequency.clear();
+        categoryFrequency.clear();
+    }
+}
@@ -0,0 +1,116 @@
+package edu.trincoll.repository.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Space-Saving heavy-hitter summary (Metwally, Agrawal and El Abbadi, 2005)
+ * over int keys. It monitors at most {@code capacity} keys; an unmonitored
+ * key that is counted takes the place of the smallest counter and inherits
+ * its count as error. With N the total of all increments, every key counted
+ * more than {@code N / capacity} times is monitored, and a monitored count
+ * overcounts by at most its error. A decrement lowers a monitored count and
+ * is otherwise dropped, so under deletes the guarantee holds for the
+ * increments alone. Memory is O(capacity) whatever the number of distinct keys.
+ */
+public class SpaceSaving {
+
+    private record Counter(int key, long count, long error) {
+    }
+
+    private static final Comparator<Counter> SMALLEST_FIRST = Comparator.comparingLong(Counter::count)
+            .thenComparingInt(Counter::key);
+
+    private final int capacity;
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    private final NavigableSet<Counter> byCount = new TreeSet<>(SMALLEST_FIRST);
+    // a lock rather than synchronized, so virtual threads never pin while they wait
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param capacity most keys monitored at once
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(int key, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                byCount.remove(counter);
+                long count = counter.count() + delta;
+                if (count <= 0) {
+                    counters.remove(key);
+                    return;
+                }
+                put(new Counter(key, count, Math.min(counter.error(), count)));
+            } else if (delta > 0) {
+                if (counters.size() < capacity) {
+                    put(new Counter(key, delta, 0));
+                } else {
+                    Counter smallest = byCount.pollFirst();
+                    counters.remove(smallest.key());
+                    put(new Counter(key, smallest.count() + delta, smallest.count()));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The monitored keys, in no particular order
+     */
+    public List<Integer> keys() {
+        lock.lock();
+        try {
+            return new ArrayList<>(counters.keySet());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The monitored count of a key with its one-sided bound; the key was
+     * counted between {@code value - errorBound} and {@code value} times
+     * since it was last monitored. An unmonitored key estimates as zero.
+     */
+    public Estimate toEstimate(int key) {
+        lock.lock();
+        try {
+            Counter counter = counters.get(key);
+            return counter == null ? Estimate.exact(0) : new Estimate(counter.count(), counter.error(), 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            counters.clear();
+            byCount.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Counter counter) {
+        counters.put(counter.key(), counter);
+        byCount.add(counter);
+    }
+}
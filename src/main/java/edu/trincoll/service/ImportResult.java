@@ -0,0 +1,21 @@
+package edu.trincoll.service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * @param imported number of items saved
+ * @param failed number of lines rejected
+ * @param errors the rejected lines, capped at {@link QuoteImportService#MAX_REPORTED_ERRORS}
+ */
+public record ImportResult(long imported, long failed, List<LineError> errors) {
+
+    /**
+     * Why a single input line was rejected
+     * @param line 1-based line number in the request body
+     * @param message the parse or validation error
+     */
+    public record LineError(long line, String message) {
+    }
+}
@@ -0,0 +1,137 @@
+package edu.trincoll.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import edu.trincoll.model.Item;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk import of newline-delimited JSON quotes.
+ * <p>
+ * The body is read incrementally in chunks of {@link #CHUNK_SIZE} lines. Each
+ * chunk is parsed and validated in parallel, then its valid items are saved
+ * with one {@code saveAll}, which reserves their ids as a block and updates
+ * the indexes once. A bad line is recorded and skipped; it never aborts the import.
+ * <p>
+ * Every imported quote is new: an {@code id} or {@code version} on a line is
+ * ignored, so an import can never overwrite a stored quote behind the back of
+ * its version check.
+ */
+@Service
+public class QuoteImportService {
+
+    public static final int CHUNK_SIZE = 1000;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final QuoteService service;
+    private final ObjectReader itemReader;
+
+    public QuoteImportService(QuoteService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.itemReader = objectMapper.readerFor(Item.class);
+    }
+
+    /**
+     * Import every line of an NDJSON stream. Blank lines are ignored.
+     * @throws IOException if the stream cannot be read
+     */
+    public ImportResult importNdjson(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        List<Long> lineNumbers = new ArrayList<>(CHUNK_SIZE);
+        Progress progress = new Progress();
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            lines.add(line);
+            lineNumbers.add(lineNumber);
+            if (lines.size() == CHUNK_SIZE) {
+                importChunk(lines, lineNumbers, progress);
+                lines.clear();
+                lineNumbers.clear();
+            }
+        }
+        if (!lines.isEmpty()) {
+            importChunk(lines, lineNumbers, progress);
+        }
+        return new ImportResult(progress.imported, progress.failed, progress.errors);
+    }
+
+    private void importChunk(List<String> lines, List<Long> lineNumbers, Progress progress) {
+        List<ParsedLine> parsed = IntStream.range(0, lines.size())
+                .parallel()
+                .mapToObj(i -> parseAndValidate(lines.get(i)))
+                .toList();
+        List<Item> valid = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            switch (parsed.get(i)) {
+                case ParsedLine.Valid(Item item) -> valid.add(item);
+                case ParsedLine.Rejected(String message) -> progress.reject(lineNumbers.get(i), message);
+            }
+        }
+        if (!valid.isEmpty()) {
+            service.saveValidated(valid);
+            progress.imported += valid.size();
+        }
+    }
+
+    /**
+     * Parse and validate one line. Anything that goes wrong rejects the line
+     * alone, since it runs on a parallel stream that would otherwise abort the import.
+     */
+    private ParsedLine parseAndValidate(String line) {
+        try {
+            Item item = itemReader.readValue(line);
+            if (item == null) {
+                return new ParsedLine.Rejected("Not a JSON object");
+            }
+            item.setId(null);
+            service.validateEntity(item);
+            return new ParsedLine.Valid(item);
+        } catch (JsonProcessingException e) {
+            return new ParsedLine.Rejected("Malformed JSON: " + e.getOriginalMessage());
+        } catch (IllegalArgumentException e) {
+            return new ParsedLine.Rejected(e.getMessage());
+        } catch (RuntimeException e) {
+            return new ParsedLine.Rejected("Invalid quote: " + e);
+        }
+    }
+
+    /**
+     * One input line after parsing: the valid item, or why the line was rejected
+     */
+    private sealed interface ParsedLine {
+        record Valid(Item item) implements ParsedLine {
+        }
+
+        record Rejected(String message) implements ParsedLine {
+        }
+    }
+
+    private static final class Progress {
+        private long imported;
+        private long failed;
+        private final List<ImportResult.LineError> errors = new ArrayList<>();
+
+        void reject(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportResult.LineError(line, message));
+            }
+        }
+    }
+}
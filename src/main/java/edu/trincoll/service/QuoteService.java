@@ -1,14 +1,16 @@
 package edu.trincoll.service;
 
 import edu.trincoll.model.Item;
+import edu.trincoll.repository.Page;
 import edu.trincoll.repository.QuoteRepository;
 import edu.trincoll.repository.Repository;
+import edu.trincoll.repository.sketch.Estimate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.function.Function;
-import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * AI Collaboration Summary:
@@ -29,6 +31,10 @@ import java.util.Objects;
 @Service
 public class QuoteService extends BaseService<Item, Long> {
     
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BULK_IDS = 10_000;
+    
     private final QuoteRepository repository;
     
     public QuoteService(QuoteRepository repository) {
@@ -61,7 +67,7 @@ public class QuoteService extends BaseService<Item, Long> {
         if (entity.getAuthor() != null && entity.getAuthor().length() > 100) {
             throw new IllegalArgumentException("Author name cannot exceed 100 characters");
         }
-        if (entity.getRating() < 0 || entity.getRating() > 5) {
+        if (!(entity.getRating() >= 0 && entity.getRating() <= 5)) {
             throw new IllegalArgumentException("Rating must be between 0 and 5");
         }
         if (entity.getCategory() != null && entity.getCategory().trim().isEmpty()) {
@@ -69,6 +75,86 @@ public class QuoteService extends BaseService<Item, Long> {
         }
     }
     
+    /**
+     * Find a page of items in id order
+     * @param after the last id of the previous page, or null for the first page
+     */
+    public Page<Item> findAll(Long after, int limit) {
+        validateLimit(limit);
+        return repository.findAll(after, limit);
+    }
+    
+    /**
+     * Validate an item and save it over the stored item with the given id,
+     * checking for that item and writing in one repository call
+     * @return the saved item, or empty if no item has the id
+     * @throws IllegalArgumentException if validation fails
+     */
+    public Optional<Item> update(Long id, Item item) {
+        return update(id, item, QuoteRepository.ANY_VERSION);
+    }
+    
+    /**
+     * Validate an item and save it over the stored item with the given id,
+     * provided that item is still at the version the caller last saw
+     * @param expectedVersion the version the caller last saw, or {@link QuoteRepository#ANY_VERSION}
+     * @return the saved item with its new version, or empty if no item has the id
+     * @throws IllegalArgumentException if validation fails
+     * @throws edu.trincoll.repository.VersionConflictException if the item has been saved since
+     */
+    public Optional<Item> update(Long id, Item item, long expectedVersion) {
+        validateEntity(item);
+        if (id == null) {
+            throw new IllegalArgumentException("ID cannot be null");
+        }
+        item.setId(id);
+        return repository.replace(item, expectedVersion);
+    }
+    
+    /**
+     * Check many ids in one call. Ids that were never stored are mostly
+     * ruled out by the repository's id filter without touching the store.
+     * @return the ids that exist, in the order given
+     * @throws IllegalArgumentException if the ids are missing or more than {@link #MAX_BULK_IDS}
+     */
+    public List<Long> findExistingIds(List<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("IDs are required");
+        }
+        if (ids.size() > MAX_BULK_IDS) {
+            throw new IllegalArgumentException("Cannot check more than " + MAX_BULK_IDS + " IDs at once");
+        }
+        return repository.findExistingIds(ids);
+    }
+    
+    /**
+     * Save a batch whose items have already passed {@link #validateEntity}
+     */
+    List<Item> saveValidated(List<Item> items) {
+        return repository.saveAll(items);
+    }
+    
+    /**
+     * Stream every item matching the optional filters, straight from the store
+     * @param status required status, or null for any
+     * @param category required category, or null for any
+     * @param tag required tag, or null for any
+     */
+    public Stream<Item> export(Item.Status status, String category, String tag) {
+        Stream<Item> items = repository.stream();
+        if (status != null) {
+            items = items.filter(item -> item.getStatus() == status);
+        }
+        if (category != null) {
+            items = items.filter(item -> category.equals(item.getCategory()));
+        }
+        if (tag != null) {
+            String normalized = Item.normalizeTag(tag);
+            items = items.filter(item -> item.hasTag(normalized));
+        }
+        return items;
+    }
+    
     /**
      * Find items by status
      */
@@ -76,6 +162,14 @@ public class QuoteService extends BaseService<Item, Long> {
         return repository.findByStatus(status);
     }
     
+    /**
+     * Find a page of items by status, in id order
+     */
+    public Page<Item> findByStatus(Item.Status status, Long after, int limit) {
+        validateLimit(limit);
+        return repository.findByStatus(status, after, limit);
+    }
+    
     /**
      * Find items by category
      */
@@ -83,6 +177,48 @@ public class QuoteService extends BaseService<Item, Long> {
         return repository.findByCategory(category);
     }
     
+    /**
+     * Find a page of items by category, in id order
+     */
+    public Page<Item> findByCategory(String category, Long after, int limit) {
+        validateLimit(limit);
+        return repository.findByCategory(category, after, limit);
+    }
+    
+    /**
+     * Find items carrying a tag
+     */
+    public List<Item> findByTag(String tag) {
+        return repository.findByTag(tag);
+    }
+    
+    /**
+     * Find quotes rated at least {@code minRating}, lowest rating first
+     */
+    public List<Item> findByMinRating(double minRating) {
+        return repository.findByMinRating(minRating);
+    }
+    
+    /**
+     * Get the top N quotes by rating
+     */
+    public List<Item> getTopRated(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return repository.findTopRated(limit);
+    }
+    
+    /**
+     * Find quotes created strictly between two instants, oldest first
+     */
+    public List<Item> findByDateRange(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Start and end are required");
+        }
+        return repository.findByDateRange(start, end);
+    }
+    
     /**
      * Group items by category using Collectors
      * TODO: Implement using streams and Collectors.groupingBy
@@ -94,107 +230,135 @@ public class QuoteService extends BaseService<Item, Long> {
     }
     
     /**
-     * Get all unique tags from all items
-     * TODO: Implement using Set operations
+     * Get all unique tags from all items, from counts the repository keeps up to date on every write
      */
     public Set<String> getAllUniqueTags() {
-        return repository.findAll().stream()
-                .flatMap(item -> item.getTags().stream())
-                .collect(Collectors.toSet());
+        return new HashSet<>(repository.countByTag().keySet());
     }
     
     /**
-     * Get count of items per status
-     * TODO: Implement using Map and streams
+     * Get count of items per status, leaving out statuses with no items.
+     * The repository keeps the counts up to date on every write.
      */
     public Map<Item.Status, Long> countByStatus() {
-        return repository.findAll().stream()
-                .collect(Collectors.groupingBy(Item::getStatus, Collectors.counting()));
+        return repository.countByStatus();
     }
     
     /**
      * Find items with multiple tags (AND operation)
-     * TODO: Implement set intersection
      */
     public List<Item> findByAllTags(Set<String> tags) {
-        if (tags == null || tags.isEmpty()) {
-            return new ArrayList<>();
-        }
-        return repository.findAll().stream()
-                .filter(item -> item.getTags().containsAll(tags))
-                .collect(Collectors.toList());
+        return repository.findByAllTags(tags);
     }
     
     /**
      * Find items with any of the tags (OR operation)
-     * TODO: Implement set union
      */
     public List<Item> findByAnyTag(Set<String> tags) {
-        if (tags == null || tags.isEmpty()) {
-            return new ArrayList<>();
-        }
-        return repository.findAll().stream()
-                .filter(item -> tags.stream().anyMatch(item::hasTag))
-                .collect(Collectors.toList());
+        return repository.findByAnyTag(tags);
     }
     
     /**
-     * Get most popular tags (top N by frequency)
-     * TODO: Implement using Map for counting and sorting
+     * Get most popular tags (top N by frequency, ties by name). The repository
+     * keeps tags ranked as they are written, so this does not touch item data.
+     * A limit of zero gives an empty list.
+     * @throws IllegalArgumentException if the limit is negative
      */
     public List<String> getMostPopularTags(int limit) {
-        Map<String, Long> tagCounts = repository.findAll().stream()
-                .flatMap(item -> item.getTags().stream())
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
-
-        return tagCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(limit)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        return limit == 0 ? List.of() : repository.findMostPopularTags(limit);
     }
     
     /**
-     * Search items by query (searches title and description)
-     * TODO: Implement flexible search
+     * Approximate number of distinct authors, from a fixed-size sketch
      */
-    public List<Item> search(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            return new ArrayList<>();
+    public Estimate estimateDistinctAuthors() {
+        return repository.estimateDistinctAuthors();
+    }
+    
+    /**
+     * Approximate number of distinct tags, from a fixed-size sketch
+     */
+    public Estimate estimateDistinctTags() {
+        return repository.estimateDistinctTags();
+    }
+    
+    /**
+     * Approximate number of items carrying a tag. The estimate may overcount but never undercounts.
+     * @throws IllegalArgumentException if the tag is blank
+     */
+    public Estimate estimateTagFrequency(String tag) {
+        if (tag == null || tag.isBlank()) {
+            throw new IllegalArgumentException("Tag is required");
         }
-
-        String lowerQuery = query.toLowerCase().trim();
-        return repository.findAll().stream()
-                .filter(item -> {
-                    boolean titleMatch = item.getTitle() != null &&
-                            item.getTitle().toLowerCase().contains(lowerQuery);
-                    boolean descriptionMatch = item.getDescription() != null &&
-                            item.getDescription().toLowerCase().contains(lowerQuery);
-                    boolean categoryMatch = item.getCategory() != null &&
-                            item.getCategory().toLowerCase().contains(lowerQuery);
-                    return titleMatch || descriptionMatch || categoryMatch;
-                })
-                .collect(Collectors.toList());
+        return repository.estimateTagFrequency(tag);
     }
     
     /**
-     * Archive old items (change status to ARCHIVED)
-     * TODO: Implement bulk update operation
+     * Approximate number of items in a category. The estimate may overcount but never undercounts.
+     * @throws IllegalArgumentException if the category is blank
+     */
+    public Estimate estimateCategoryFrequency(String category) {
+        if (category == null || category.isBlank()) {
+            throw new IllegalArgumentException("Category is required");
+        }
+        return repository.estimateCategoryFrequency(category);
+    }
+    
+    /**
+     * Search items by query (searches title, description, category and author),
+     * returning at most {@link #DEFAULT_PAGE_SIZE} results ranked by relevance
+     */
+    public List<Item> search(String query) {
+        return search(query, DEFAULT_PAGE_SIZE);
+    }
+    
+    /**
+     * Search items by query, returning the top {@code limit} results ranked by relevance
+     */
+    public List<Item> search(String query, int limit) {
+        return search(query, null, limit).items();
+    }
+    
+    /**
+     * Search items by query, one page at a time
+     * @param after cursor from the previous page, or null for the first page
+     */
+    public Page<Item> search(String query, String after, int limit) {
+        validateLimit(limit);
+        return repository.search(query, after, limit);
+    }
+    
+    /**
+     * Archive old items (change status to ARCHIVED). Stored items cannot be
+     * changed in place, so each is copied, updated and saved back in one batch.
      */
     public int archiveInactiveItems() {
-        List<Item> inactiveItems = repository.findByStatus(Item.Status.INACTIVE);
-        inactiveItems.forEach(item -> item.setStatus(Item.Status.ARCHIVED));
-        repository.saveAll(inactiveItems);
-        return inactiveItems.size();
+        List<Item> archived = new ArrayList<>();
+        for (Item item : repository.findByStatus(Item.Status.INACTIVE)) {
+            Item copy = item.mutableCopy();
+            copy.setStatus(Item.Status.ARCHIVED);
+            archived.add(copy);
+        }
+        repository.saveAll(archived);
+        return archived.size();
     }
 
     /**
-     * Get all unique categories from all items
+     * Get all unique categories from all items, from counts the repository keeps up to date
      */
     public Set<String> getAllUniqueCategories() {
-        return repository.findAll().stream()
-                .map(Item::getCategory)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        return repository.findAllCategories();
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit cannot exceed " + MAX_PAGE_SIZE);
+        }
     }
-}
\ No newline at end of file
+}
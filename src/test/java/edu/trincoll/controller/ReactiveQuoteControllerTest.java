@@ -0,0 +1,71 @@
+package edu.trincoll.controller;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.Page;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ReactiveQuoteControllerTest {
+
+    private static final int PAGES = 10;
+    private static final int PAGE_SIZE = 5;
+
+    @Test
+    @DisplayName("Pages should be read only as the subscriber asks for items")
+    void testPagesOnDemand() {
+        AtomicInteger reads = new AtomicInteger();
+        Function<String, Page<Item>> query = cursor -> {
+            reads.incrementAndGet();
+            return page(cursor == null ? 0 : Integer.parseInt(cursor));
+        };
+
+        StepVerifier.create(ReactiveQuoteController.pages(query, null), 0)
+                .then(() -> assertThat(reads).hasValue(1))
+                .thenRequest(1)
+                .expectNextCount(1)
+                .then(() -> assertThat(reads.get()).isLessThanOrEqualTo(2))
+                .thenRequest(PAGE_SIZE * 2)
+                .expectNextCount(PAGE_SIZE * 2)
+                .then(() -> assertThat(reads.get()).isLessThanOrEqualTo(4))
+                .thenCancel()
+                .verify();
+        assertThat(reads.get()).isLessThan(PAGES);
+    }
+
+    @Test
+    @DisplayName("Every item should arrive in order and the stream should end after the last page")
+    void testAllPages() {
+        AtomicInteger reads = new AtomicInteger();
+        Function<String, Page<Item>> query = cursor -> {
+            reads.incrementAndGet();
+            return page(cursor == null ? 0 : Integer.parseInt(cursor));
+        };
+
+        StepVerifier.create(ReactiveQuoteController.pages(query, null).map(Item::getId))
+                .expectNextSequence(LongStream.range(0, PAGES * PAGE_SIZE).boxed().toList())
+                .verifyComplete();
+        assertThat(reads).hasValue(PAGES);
+    }
+
+    /**
+     * Page {@code n} of a result of {@link #PAGES} pages
+     */
+    private static Page<Item> page(int n) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Item item = new Item("Quote", "On virtue");
+            item.setId((long) n * PAGE_SIZE + i);
+            items.add(item);
+        }
+        return new Page<>(items, n + 1 < PAGES ? String.valueOf(n + 1) : null);
+    }
+}
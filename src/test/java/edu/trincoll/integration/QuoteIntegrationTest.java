@@ -2,6 +2,7 @@ package edu.trincoll.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.trincoll.model.Item;
+import edu.trincoll.service.QuoteService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -10,7 +11,11 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -152,6 +157,94 @@ class QuoteIntegrationTest {
                 .andExpect(jsonPath("$.description").value("Updated Description"));
     }
     
+    @Test
+    @DisplayName("Should update conditionally with If-Match and ETags")
+    void testConditionalUpdate() throws Exception {
+        String response = mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Item("Original", "Desc"))))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        Item created = objectMapper.readValue(response, Item.class);
+        created.setTitle("Updated");
+        
+        mockMvc.perform(get("/api/items/" + created.getId()))
+                .andExpect(header().string("ETag", "\"1\""));
+        mockMvc.perform(put("/api/items/" + created.getId())
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.version").value(2));
+        mockMvc.perform(put("/api/items/" + created.getId())
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string("ETag", "\"2\""));
+        mockMvc.perform(put("/api/items/" + created.getId())
+                        .header("If-Match", "W/\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/items/" + created.getId())
+                        .header("If-Match", "\"7\", W/\"2\", \"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+        mockMvc.perform(put("/api/items/" + created.getId())
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(created)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+    
+    @Test
+    @DisplayName("Should return 404 when updating a missing item, or 412 under If-Match")
+    void testUpdateMissingItem() throws Exception {
+        mockMvc.perform(put("/api/items/424242")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Item("Title", "Desc"))))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/api/items/424242")
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Item("Title", "Desc"))))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/items/424242")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Item("Title", "Desc"))))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/items/424242"))
+                .andExpect(status().isNotFound());
+    }
+    
+    @Test
+    @DisplayName("Should check many ids in one call")
+    void testFindExistingIds() throws Exception {
+        String response = mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Item("Stored", "Desc"))))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        Item created = objectMapper.readValue(response, Item.class);
+        
+        mockMvc.perform(post("/api/items/exists")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[424242, " + created.getId() + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", contains(created.getId().intValue())));
+    }
+    
     @Test
     @DisplayName("Should delete item")
     void testDeleteItem() throws Exception {
@@ -265,4 +358,233 @@ class QuoteIntegrationTest {
                         .param("query", "Java"))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should get items created within a range")
+    void testGetItemsCreatedBetween() throws Exception {
+        mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Item("Recent", "Created now"))))
+                .andExpect(status().isCreated());
+        
+        mockMvc.perform(get("/api/items/created")
+                        .param("from", LocalDateTime.now().minusHours(1).toString())
+                        .param("to", LocalDateTime.now().plusHours(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title").value("Recent"));
+    }
+
+    @Test
+    @DisplayName("Should rank the most popular tags")
+    void testGetPopularTags() throws Exception {
+        String[][] tagSets = {{"stoic", "classic"}, {"stoic"}, {"modern"}};
+        for (String[] tags : tagSets) {
+            Item item = new Item("Tagged", "Desc");
+            for (String tag : tags) {
+                item.addTag(tag);
+            }
+            mockMvc.perform(post("/api/items")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(item)))
+                    .andExpect(status().isCreated());
+        }
+        
+        mockMvc.perform(get("/api/items/tags/popular").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", contains("stoic", "classic")));
+        
+        mockMvc.perform(get("/api/items/tags/popular").param("limit", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/api/items/tags/popular").param("limit", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should answer approximate statistics with their error bounds")
+    void testApproximateStatistics() throws Exception {
+        for (String author : new String[] {"Seneca", "Epictetus", "Seneca"}) {
+            Item item = new Item("Quote", "Desc");
+            item.setAuthor(author);
+            item.setCategory("Stoic");
+            item.addTag("virtue");
+            mockMvc.perform(post("/api/items")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(item)))
+                    .andExpect(status().isCreated());
+        }
+        
+        mockMvc.perform(get("/api/items/stats/approx/authors"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(2))
+                .andExpect(jsonPath("$.confidence").isNumber());
+        mockMvc.perform(get("/api/items/stats/approx/tags/virtue"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(3));
+        mockMvc.perform(get("/api/items/stats/approx/categories/Stoic"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.value").value(3));
+        mockMvc.perform(get("/api/items/stats/approx/tags/ "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should page through items with a next-cursor header")
+    void testPaginateItems() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/api/items")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new Item("Item " + i, "Desc"))))
+                    .andExpect(status().isCreated());
+        }
+        
+        String cursor = mockMvc.perform(get("/api/items").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+        
+        mockMvc.perform(get("/api/items").param("limit", "2").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title").value("Item 3"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        
+        mockMvc.perform(get("/api/items").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should return every item unless a page is asked for")
+    void testUnpagedByDefault() throws Exception {
+        int count = QuoteService.DEFAULT_PAGE_SIZE + 5;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            body.append("{\"title\":\"Quote ").append(i).append("\",\"category\":\"Stoicism\"}\n");
+        }
+        mockMvc.perform(post("/api/items/import").contentType("application/x-ndjson").content(body.toString()))
+                .andExpect(status().isOk());
+        
+        mockMvc.perform(get("/api/items"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(count)))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        mockMvc.perform(get("/api/items/category/Stoicism"))
+                .andExpect(jsonPath("$", hasSize(count)));
+        mockMvc.perform(get("/api/items/status/ACTIVE"))
+                .andExpect(jsonPath("$", hasSize(count)));
+        mockMvc.perform(get("/api/items/category/Stoicism").param("after", "0"))
+                .andExpect(jsonPath("$", hasSize(QuoteService.DEFAULT_PAGE_SIZE)))
+                .andExpect(header().exists("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("Should export matching items as NDJSON")
+    void testExportItems() throws Exception {
+        Item work = new Item("Work", "Desc");
+        work.setCategory("Work");
+        work.addTag("urgent");
+        Item home = new Item("Home", "Desc");
+        home.setCategory("Home");
+        for (Item item : new Item[]{work, home}) {
+            mockMvc.perform(post("/api/items")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(item)))
+                    .andExpect(status().isCreated());
+        }
+        
+        MvcResult all = mockMvc.perform(get("/api/items/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(all))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        assertThat(body.lines()).hasSize(2);
+        
+        MvcResult filtered = mockMvc.perform(get("/api/items/export")
+                        .param("category", "Work")
+                        .param("tag", "URGENT"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String line = mockMvc.perform(asyncDispatch(filtered))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        assertThat(line.lines()).hasSize(1);
+        assertThat(objectMapper.readValue(line.trim(), Item.class).getTitle()).isEqualTo("Work");
+    }
+
+    @Test
+    @DisplayName("Should bulk import NDJSON and report bad lines without aborting")
+    void testImportItems() throws Exception {
+        String body = String.join("\n",
+                "{\"title\": \"First\", \"category\": \"Imported\"}",
+                "",
+                "{\"title\": \"\"}",
+                "not json",
+                "{\"title\": \"Second\", \"category\": \"Imported\"}");
+        
+        mockMvc.perform(post("/api/items/import")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(3))
+                .andExpect(jsonPath("$.errors[0].message").value("Title is required"))
+                .andExpect(jsonPath("$.errors[1].line").value(4));
+        
+        mockMvc.perform(get("/api/items/category/Imported"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+    
+    @Test
+    @DisplayName("Should reject null and non-object NDJSON lines one by one")
+    void testImportNonObjectLines() throws Exception {
+        String body = String.join("\n",
+                "null",
+                "42",
+                "[]",
+                "\"quote\"",
+                "{\"title\": \"Kept\", \"category\": \"Imported\"}");
+        
+        mockMvc.perform(post("/api/items/import")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(4))
+                .andExpect(jsonPath("$.errors[*].line", contains(1, 2, 3, 4)))
+                .andExpect(jsonPath("$.errors[0].message").value("Not a JSON object"));
+        
+        mockMvc.perform(get("/api/items/category/Imported"))
+                .andExpect(jsonPath("$[0].title").value("Kept"));
+    }
+    
+    @Test
+    @DisplayName("Should import quotes as new, ignoring ids in the NDJSON")
+    void testImportIgnoresIds() throws Exception {
+        String response = mockMvc.perform(post("/api/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Item("Original", "Desc"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Item original = objectMapper.readValue(response, Item.class);
+        
+        mockMvc.perform(post("/api/items/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"id\": " + original.getId() + ", \"title\": \"Imported\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+        
+        mockMvc.perform(get("/api/items/" + original.getId()))
+                .andExpect(jsonPath("$.title").value("Original"));
+    }
+}
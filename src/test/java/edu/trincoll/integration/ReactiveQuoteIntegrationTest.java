@@ -0,0 +1,198 @@
+package edu.trincoll.integration;
+
+import edu.trincoll.controller.QuoteController;
+import edu.trincoll.controller.QuoteQueryController;
+import edu.trincoll.controller.ReactiveQuoteController;
+import edu.trincoll.model.Item;
+import edu.trincoll.service.QuoteService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.DispatcherHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The items API under the {@code reactive} profile, over a real socket
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveQuoteIntegrationTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private QuoteService service;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        service.findAll().forEach(item -> service.deleteById(item.getId()));
+    }
+
+    @Test
+    @DisplayName("Should run on WebFlux with the reactive controller in place of the MVC one")
+    void testReactiveStack() {
+        assertThat(context.getBeansOfType(DispatcherHandler.class)).hasSize(1);
+        assertThat(context.getBeanNamesForType(ReactiveQuoteController.class)).hasSize(1);
+        assertThat(context.getBeanNamesForType(QuoteController.class)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should stream every item across several repository pages")
+    void testStreamAllItems() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < QuoteService.DEFAULT_PAGE_SIZE * 2 + 5; i++) {
+            items.add(quote("Quote " + i, "Stoicism"));
+        }
+        List<Item> saved = service.saveAll(items);
+
+        List<Item> all = client.get().uri("/api/items").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Item.class).returnResult().getResponseBody();
+        assertThat(all).extracting(Item::getId).containsExactlyElementsOf(saved.stream().map(Item::getId).toList());
+
+        List<Item> rest = client.get().uri("/api/items?after={after}&limit=3", saved.get(150).getId())
+                .accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .returnResult(Item.class).getResponseBody().collectList().block();
+        assertThat(rest).extracting(Item::getId)
+                .containsExactly(saved.get(151).getId(), saved.get(152).getId(), saved.get(153).getId());
+
+        client.get().uri("/api/items?limit=0").exchange().expectStatus().isBadRequest();
+        client.get().uri("/api/items/status/ACTIVE").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Item.class).hasSize(saved.size());
+    }
+
+    @Test
+    @DisplayName("Should stream groups in the same shape as the MVC controller")
+    void testGrouped() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < QuoteService.DEFAULT_PAGE_SIZE + 1; i++) {
+            items.add(quote("Stoic " + i, "Stoicism"));
+        }
+        items.add(quote("Zen", "Zen"));
+        items.add(quote("Uncategorized", null));
+        service.saveAll(items);
+
+        Map<String, List<Map<String, Object>>> grouped = client.get().uri("/api/items/grouped").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody(new ParameterizedTypeReference<
+                        Map<String, List<Map<String, Object>>>>() {})
+                .returnResult().getResponseBody();
+
+        assertThat(grouped).containsOnlyKeys("Stoicism", "Zen");
+        assertThat(grouped.get("Stoicism")).hasSize(QuoteService.DEFAULT_PAGE_SIZE + 1);
+        assertThat(grouped.get("Zen")).singleElement().extracting(item -> item.get("title")).isEqualTo("Zen");
+    }
+
+    @Test
+    @DisplayName("Should stream search results")
+    void testSearch() {
+        service.save(quote("Patience", "Stoicism"));
+        service.save(quote("Patience and patience", "Stoicism"));
+        service.save(quote("Courage", "Stoicism"));
+
+        client.get().uri("/api/items/search?query=patience").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Item.class).hasSize(2);
+        client.get().uri("/api/items/search?query=patience&limit=-1").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should create, read and conditionally update with ETags")
+    void testWritesWithETags() {
+        Item created = client.post().uri("/api/items").bodyValue(quote("Meditations", "Stoicism")).exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody(Item.class).returnResult().getResponseBody();
+
+        client.get().uri("/api/items/{id}", created.getId()).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+        created.setTitle("Meditations, Book II");
+        client.put().uri("/api/items/{id}", created.getId()).header(HttpHeaders.IF_MATCH, "\"1\"")
+                .bodyValue(created).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"");
+        client.put().uri("/api/items/{id}", created.getId()).header(HttpHeaders.IF_MATCH, "\"1\"")
+                .bodyValue(created).exchange()
+                .expectStatus().isEqualTo(412)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"");
+        client.put().uri("/api/items/{id}", created.getId()).header(HttpHeaders.IF_MATCH, "\"1\", \"2\"")
+                .bodyValue(created).exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+        client.put().uri("/api/items/{id}", 424242).header(HttpHeaders.IF_MATCH, "*")
+                .bodyValue(created).exchange()
+                .expectStatus().isEqualTo(412);
+
+        client.post().uri("/api/items").bodyValue(new Item("", "No title")).exchange()
+                .expectStatus().isBadRequest();
+        client.delete().uri("/api/items/{id}", created.getId()).exchange().expectStatus().isNoContent();
+        client.delete().uri("/api/items/{id}", created.getId()).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Should serve the shared query endpoints on the reactive stack")
+    void testSharedQueries() {
+        Item item = quote("Meditations", "Stoicism");
+        item.setTags(Set.of("virtue"));
+        item.setRating(4.5);
+        service.save(item);
+
+        assertThat(context.getBeanNamesForType(QuoteQueryController.class)).hasSize(1);
+        client.get().uri("/api/items/tag/{tag}", "Virtue").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Item.class).hasSize(1);
+        client.get().uri("/api/items/rating?min=4").exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Item.class).hasSize(1);
+        client.get().uri("/api/items/stats/approx/authors").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.value").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should export and import NDJSON")
+    void testExportAndImport() {
+        client.post().uri("/api/items/import").contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"title\":\"One\",\"category\":\"Stoicism\"}\nnot json\n{\"title\":\"Two\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.imported").isEqualTo(2)
+                .jsonPath("$.failed").isEqualTo(1);
+
+        client.get().uri("/api/items/export?category=Stoicism").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Item.class).hasSize(1);
+    }
+
+    private static Item quote(String title, String category) {
+        Item item = new Item(title, "On virtue");
+        item.setCategory(category);
+        item.setAuthor("Seneca");
+        return item;
+    }
+}
@@ -0,0 +1,142 @@
+package edu.trincoll.integration;
+
+import edu.trincoll.Assignment2Application;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Many slow clients against the running server, once on Tomcat's platform
+ * thread pool and once with the {@code virtual} profile. Each client sends its
+ * request body in two halves with a pause between, holding a request thread
+ * for the whole pause. With platform threads only {@link #POOL_SIZE} clients
+ * are served at a time and the rest queue; with virtual threads they are all
+ * served at once.
+ * <p>
+ * Tagged {@code load} and left out of {@code test}; run it with
+ * {@code ./gradlew loadTest}.
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final int POOL_SIZE = 200;
+    private static final int CLIENTS = 1000;
+    private static final long PAUSE_MILLIS = 500;
+
+    private static final String BODY = """
+            {"title":"On the Shortness of Life","description":"It is not that we have a short time to live.",\
+            "category":"Stoicism","author":"Seneca","rating":4.5,"tags":["stoic","time"]}""";
+
+    @Test
+    @DisplayName("Virtual threads should serve slow clients concurrently where the platform pool queues them")
+    void testSlowClients() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%-9s %8s %8s %8s %8s %8s%n", "threads", "ok", "wall ms", "p50 ms", "p99 ms", "max ms");
+        System.out.println(platform);
+        System.out.println(virtual);
+
+        assertThat(platform.ok()).isEqualTo(CLIENTS);
+        assertThat(virtual.ok()).isEqualTo(CLIENTS);
+        // the platform pool needs CLIENTS / POOL_SIZE rounds of pauses; virtual threads need about one
+        assertThat(virtual.wallMillis()).isLessThan(platform.wallMillis());
+    }
+
+    private static Result run(boolean virtualThreads) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(Assignment2Application.class)
+                .properties("server.port=0", "server.tomcat.threads.max=" + POOL_SIZE,
+                        "spring.main.banner-mode=off", "logging.level.root=warn");
+        if (virtualThreads) {
+            builder.profiles("virtual");
+        }
+        try (ConfigurableApplicationContext context = builder.run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            slowPost(port); // warm up
+            return load(virtualThreads ? "virtual" : "platform", port);
+        }
+    }
+
+    private static Result load(String name, int port) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> latencies = new ArrayList<>(CLIENTS);
+        long begin;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                latencies.add(clients.submit(() -> {
+                    start.await();
+                    return slowPost(port);
+                }));
+            }
+            begin = System.nanoTime();
+            start.countDown();
+        }
+        long wall = (System.nanoTime() - begin) / 1_000_000;
+        long[] sorted = new long[CLIENTS];
+        int ok = 0;
+        for (Future<Long> latency : latencies) {
+            long millis = latency.get();
+            if (millis >= 0) {
+                sorted[ok++] = millis;
+            }
+        }
+        Arrays.sort(sorted, 0, ok);
+        return new Result(name, ok, wall, percentile(sorted, ok, 0.5), percentile(sorted, ok, 0.99),
+                ok == 0 ? 0 : sorted[ok - 1]);
+    }
+
+    /**
+     * Create a quote, pausing halfway through the body
+     * @return milliseconds until the response arrived, or -1 if it was not 201 Created
+     */
+    private static long slowPost(int port) throws IOException, InterruptedException {
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        String head = "POST /api/items HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+        long begin = System.nanoTime();
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            Thread.sleep(PAUSE_MILLIS);
+            out.write(body, body.length / 2, body.length - body.length / 2);
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            String status = in.readLine();
+            long millis = (System.nanoTime() - begin) / 1_000_000;
+            return status != null && status.startsWith("HTTP/1.1 201") ? millis : -1;
+        }
+    }
+
+    private static long percentile(long[] sorted, int count, double p) {
+        return count == 0 ? 0 : sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+    }
+
+    private record Result(String threads, int ok, long wallMillis, long p50, long p99, long max) {
+        @Override
+        public String toString() {
+            return String.format("%-9s %8d %8d %8d %8d %8d", threads, ok, wallMillis, p50, p99, max);
+        }
+    }
+}
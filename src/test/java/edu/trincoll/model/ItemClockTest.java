@@ -0,0 +1,130 @@
+package edu.trincoll.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ItemClockTest {
+
+    private static final Instant NOON = Instant.parse("2024-03-01T12:00:00Z");
+
+    @AfterEach
+    void restoreClock() {
+        Item.setClock(Clock.systemDefaultZone());
+    }
+
+    @Test
+    @DisplayName("Items should stamp their timestamps from the injected clock")
+    void testInjectedClock() {
+        Item.setClock(Clock.fixed(NOON, ZoneOffset.UTC));
+        Item item = new Item("Title", "Desc");
+
+        assertThat(item.getCreatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 1, 12, 0));
+        assertThat(item.getUpdatedAt()).isEqualTo(item.getCreatedAt());
+
+        Item.setClock(Clock.fixed(NOON.plusSeconds(90), ZoneOffset.UTC));
+        item.setTitle("Changed");
+
+        assertThat(item.getCreatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 1, 12, 0));
+        assertThat(item.getUpdatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 1, 12, 1, 30));
+    }
+
+    @Test
+    @DisplayName("Edit should apply every change under one timestamp")
+    void testEdit() {
+        Item.setClock(Clock.fixed(NOON, ZoneOffset.UTC));
+        Item item = new Item();
+        Item.setClock(Clock.fixed(NOON.plusSeconds(60), ZoneOffset.UTC));
+
+        assertThat(item.edit(changes -> changes
+                .title("Meditations")
+                .author("Marcus Aurelius")
+                .rating(4.5)
+                .tags(Set.of(" Stoic "))
+                .addTag("Classic"))).isSameAs(item);
+
+        assertThat(item.getTitle()).isEqualTo("Meditations");
+        assertThat(item.getAuthor()).isEqualTo("Marcus Aurelius");
+        assertThat(item.getRating()).isEqualTo(4.5);
+        assertThat(item.getTags()).containsExactlyInAnyOrder("stoic", "classic");
+        assertThat(item.getUpdatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 1, 12, 1));
+        assertThatThrownBy(() -> item.immutableCopy().edit(changes -> changes.title("Changed")))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("Restored timestamps should read back unchanged")
+    void testRestoreTimestamps() {
+        Item item = new Item();
+        LocalDateTime created = LocalDateTime.of(2020, 1, 1, 8, 30, 15, 250_000_000);
+        item.restoreTimestamps(created, created.plusDays(1));
+
+        assertThat(item.getCreatedAt()).isEqualTo(created);
+        assertThat(item.getUpdatedAt()).isEqualTo(created.plusDays(1));
+        assertThat(item.mutableCopy()).isEqualTo(item);
+    }
+
+    @Test
+    @DisplayName("Timestamps should keep sub-millisecond values and local times that a DST change skips or repeats")
+    void testTimestampsLossless() throws Exception {
+        Item.setClock(Clock.fixed(NOON, ZoneId.of("America/New_York")));
+        Item item = new Item();
+        assertThat(item.getCreatedAt()).isEqualTo(LocalDateTime.of(2024, 3, 1, 7, 0));
+
+        LocalDateTime gap = LocalDateTime.of(2024, 3, 10, 2, 30, 0, 123_456_789);
+        LocalDateTime overlap = LocalDateTime.of(2024, 11, 3, 1, 30);
+        item.restoreTimestamps(gap, overlap);
+        assertThat(item.getCreatedAt()).isEqualTo(gap);
+        assertThat(item.getUpdatedAt()).isEqualTo(overlap);
+
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Item read = mapper.readValue(mapper.writeValueAsString(item), Item.class);
+        assertThat(read.getCreatedAt()).isEqualTo(gap);
+        assertThat(read.getUpdatedAt()).isEqualTo(overlap);
+    }
+
+    @Test
+    @DisplayName("Closing a clock scope should stop the clock and put the system clock back")
+    void testClockScope() {
+        CoarseClock coarse = new CoarseClock(Clock.systemUTC(), Duration.ofMillis(1));
+        Item.ClockScope scope = Item.useClock(coarse);
+        assertThat(Item.clock()).isSameAs(coarse);
+
+        scope.close();
+        assertThat(Item.clock()).isNotSameAs(coarse);
+        assertThat(Item.clock().getZone()).isEqualTo(ZoneId.systemDefault());
+
+        Clock fixed = Clock.fixed(NOON, ZoneOffset.UTC);
+        Item.ClockScope replaced = Item.useClock(Clock.systemUTC());
+        Item.setClock(fixed);
+        replaced.close();
+        assertThat(Item.clock()).isSameAs(fixed);
+    }
+
+    @Test
+    @DisplayName("Coarse clock should follow its source one tick behind")
+    void testCoarseClock() throws InterruptedException {
+        try (CoarseClock clock = new CoarseClock(Clock.systemUTC(), Duration.ofMillis(1))) {
+            long before = System.currentTimeMillis();
+            Thread.sleep(50);
+
+            assertThat(clock.millis()).isGreaterThan(before).isLessThanOrEqualTo(System.currentTimeMillis());
+            assertThat(clock.getZone()).isEqualTo(ZoneOffset.UTC);
+            assertThat(clock.localMillis()).isCloseTo(clock.millis(), within(50L));
+            assertThat(clock.withZone(ZoneOffset.ofHours(2)).millis()).isCloseTo(clock.millis(), within(50L));
+        }
+        assertThatThrownBy(() -> new CoarseClock(Clock.systemUTC(), Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
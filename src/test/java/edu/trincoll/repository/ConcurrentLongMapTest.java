@@ -0,0 +1,88 @@
+package edu.trincoll.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    @DisplayName("Should behave like a HashMap under random puts and removes")
+    void testMatchesHashMap() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long, String> model = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 2_500L;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(model.remove(key));
+            } else {
+                String value = "v" + i;
+                assertThat(map.put(key, value)).isEqualTo(model.put(key, value));
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(model.size());
+        model.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        assertThat(map.values().toList()).containsExactlyInAnyOrderElementsOf(model.values());
+        assertThat(map.get(Long.MIN_VALUE)).isNull();
+
+        map.clear();
+        assertThat(map.size()).isZero();
+        assertThat(map.iterator().hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should never return another key's value to lock-free readers during writes")
+    void testConcurrentReaders() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                readers.add(pool.submit(() -> {
+                    Random random = new Random();
+                    while (!done.get()) {
+                        long key = random.nextInt(50_000);
+                        Long value = map.get(key);
+                        if (value != null && value != key) {
+                            throw new AssertionError("key " + key + " returned " + value);
+                        }
+                    }
+                }));
+            }
+            Future<?> writer = pool.submit(() -> {
+                for (int round = 0; round < 5; round++) {
+                    for (long key = 0; key < 50_000; key++) {
+                        map.put(key, key);
+                    }
+                    for (long key = round % 2; key < 50_000; key += 2) {
+                        map.remove(key);
+                    }
+                }
+            });
+            writer.get(60, TimeUnit.SECONDS);
+            done.set(true);
+            for (Future<?> reader : readers) {
+                reader.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(map.size()).isEqualTo(25_000);
+    }
+}
@@ -1,12 +1,27 @@
 package edu.trincoll.repository;
 
 import edu.trincoll.model.Item;
+import edu.trincoll.repository.index.Ordinals;
+import edu.trincoll.repository.index.StringDictionary;
+import edu.trincoll.repository.sketch.Estimate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -42,6 +57,21 @@ class QuoteRepositoryTest {
         assertThat(found).isEmpty();
     }
     
+    @Test
+    @DisplayName("Generated ids should never reuse an explicit id")
+    void testGeneratedIdsSkipExplicitIds() {
+        Item explicit = new Item("Explicit", "Desc");
+        explicit.setId(5L);
+        Item unassigned = new Item("Unassigned", "Desc");
+        
+        List<Item> saved = repository.saveAll(List.of(explicit, unassigned));
+        Item next = repository.save(new Item("Next", "Desc"));
+        
+        assertThat(saved).extracting(Item::getId).containsExactly(5L, 6L);
+        assertThat(next.getId()).isEqualTo(7L);
+        assertThat(repository.findById(5L)).get().extracting(Item::getTitle).isEqualTo("Explicit");
+    }
+    
     @Test
     @DisplayName("Should find all items")
     void testFindAll() {
@@ -208,4 +238,657 @@ class QuoteRepositoryTest {
         assertThat(programmingItems).extracting(Item::getTitle)
                 .containsExactlyInAnyOrder("Java Programming", "Python Programming");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should move item between index buckets when an indexed field changes")
+    void testIndexesFollowUpdates() {
+        Item item = new Item("Quote", "Text");
+        item.setCategory("Wisdom");
+        item.setAuthor("Seneca");
+        repository.save(item);
+
+        item.setStatus(Item.Status.INACTIVE);
+        item.setCategory("Stoicism");
+        item.setAuthor("Epictetus");
+        item.setFavorite(true);
+        repository.save(item);
+
+        assertThat(repository.findByStatus(Item.Status.ACTIVE)).isEmpty();
+        assertThat(repository.findByStatus(Item.Status.INACTIVE)).containsExactly(item);
+        assertThat(repository.findByCategory("Wisdom")).isEmpty();
+        assertThat(repository.findByCategory("Stoicism")).containsExactly(item);
+        assertThat(repository.findByAuthor("Seneca")).isEmpty();
+        assertThat(repository.findByAuthor("Epictetus")).containsExactly(item);
+        assertThat(repository.findFavorites()).containsExactly(item);
+    }
+
+    @Test
+    @DisplayName("Should drop deleted items from every index")
+    void testIndexesFollowDeletes() {
+        Item kept = new Item("Kept", "Text");
+        kept.setCategory("Wisdom");
+        kept.setFavorite(true);
+        Item removed = new Item("Removed", "Text");
+        removed.setCategory("Wisdom");
+        removed.setFavorite(true);
+        repository.saveAll(List.of(kept, removed));
+
+        repository.deleteById(removed.getId());
+
+        assertThat(repository.findByCategory("Wisdom")).containsExactly(kept);
+        assertThat(repository.findFavorites()).containsExactly(kept);
+
+        repository.deleteAll();
+
+        assertThat(repository.findByCategory("Wisdom")).isEmpty();
+        assertThat(repository.findByStatus(Item.Status.ACTIVE)).isEmpty();
+        assertThat(repository.findFavorites()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should answer tag AND and OR queries from the tag index")
+    void testFindByAllAndAnyTags() {
+        Item both = new Item("Both", "Desc");
+        both.addTag("stoic");
+        both.addTag("classic");
+        Item stoic = new Item("Stoic", "Desc");
+        stoic.addTag("stoic");
+        Item modern = new Item("Modern", "Desc");
+        modern.addTag("modern");
+        repository.saveAll(List.of(both, stoic, modern));
+
+        assertThat(repository.findByAllTags(Set.of("Stoic", " classic ")))
+                .containsExactly(both);
+        assertThat(repository.findByAllTags(Set.of("stoic", "missing"))).isEmpty();
+        assertThat(repository.findByAnyTag(Set.of("classic", "modern")))
+                .containsExactlyInAnyOrder(both, modern);
+    }
+
+    @Test
+    @DisplayName("Should update the tag index when tags change or items are deleted")
+    void testTagIndexFollowsWrites() {
+        Item item = new Item("Quote", "Desc");
+        item.addTag("old");
+        repository.save(item);
+
+        item.removeTag("old");
+        item.addTag("new");
+        repository.save(item);
+
+        assertThat(repository.findByTag("old")).isEmpty();
+        assertThat(repository.findByTag("new")).containsExactly(item);
+
+        repository.deleteById(item.getId());
+
+        assertThat(repository.findByTag("new")).isEmpty();
+        assertThat(repository.findByAnyTag(Set.of("old", "new"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should match title substrings of any length ignoring case")
+    void testFindByTitleContainingShortAndLongTerms() {
+        repository.save(new Item("The Art of War", "Book"));
+        repository.save(new Item("Warlords", "Book"));
+        repository.save(new Item("Peace", "Book"));
+
+        assertThat(repository.findByTitleContaining("WAR")).extracting(Item::getTitle)
+                .containsExactlyInAnyOrder("The Art of War", "Warlords");
+        assertThat(repository.findByTitleContaining("f w")).extracting(Item::getTitle)
+                .containsExactly("The Art of War");
+        assertThat(repository.findByTitleContaining("ea")).extracting(Item::getTitle)
+                .containsExactly("Peace");
+        assertThat(repository.findByTitleContaining("zzz")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should re-index titles on update and delete")
+    void testTitleIndexFollowsWrites() {
+        Item item = repository.save(new Item("Before", "Desc")).mutableCopy();
+        item.setTitle("After");
+        repository.save(item);
+
+        assertThat(repository.findByTitleContaining("before")).isEmpty();
+        assertThat(repository.findByTitleContaining("after")).containsExactly(item);
+
+        repository.deleteById(item.getId());
+
+        assertThat(repository.findByTitleContaining("after")).isEmpty();
+        assertThat(repository.findByTitleContaining("af")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should answer rating range and top-rated queries from the rating index")
+    void testRatingIndex() {
+        Item low = new Item("Low", "Desc");
+        low.setRating(1.5);
+        Item mid = new Item("Mid", "Desc");
+        mid.setRating(3.0);
+        Item high = new Item("High", "Desc");
+        high.setRating(4.5);
+        repository.saveAll(List.of(low, mid, high));
+
+        assertThat(repository.findByMinRating(3.0)).containsExactly(mid, high);
+        assertThat(repository.findTopRated(2)).containsExactly(high, mid);
+
+        low.setRating(5.0);
+        repository.save(low);
+        repository.deleteById(high.getId());
+
+        assertThat(repository.findByMinRating(3.0)).containsExactly(mid, low);
+        assertThat(repository.findTopRated(5)).containsExactly(low, mid);
+    }
+
+    @Test
+    @DisplayName("Should reuse released ordinals only once no lookup that saw them is running")
+    void testOrdinalsReused() {
+        Ordinals ordinals = new Ordinals();
+        int first = ordinals.acquire(1L);
+        ordinals.acquire(2L);
+
+        int during = ordinals.lookup(() -> {
+            ordinals.release(1L);
+            int ordinal = ordinals.acquire(3L);
+            assertThat(ordinals.idAt(first)).isEqualTo(1L);
+            return ordinal;
+        });
+        assertThat(during).isNotEqualTo(first);
+        assertThat(ordinals.acquire(4L)).isEqualTo(first);
+        assertThat(ordinals.idAt(first)).isEqualTo(4L);
+
+        ordinals.clear();
+        assertThat(ordinals.ordinalOf(4L)).isEqualTo(-1);
+        assertThat(ordinals.acquire(5L)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep reusing ordinals under churn while some lookup is always running")
+    void testOrdinalsReusedUnderReadTraffic() throws Exception {
+        int live = 10;
+        Ordinals ordinals = new Ordinals();
+        for (long id = 0; id < live; id++) {
+            ordinals.acquire(id);
+        }
+        // each reader leaves its lookup only once a later one has begun, so one is always running
+        AtomicLong entries = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (running.get()) {
+                    ordinals.lookup(() -> {
+                        long entry = entries.incrementAndGet();
+                        while (running.get() && entries.get() == entry) {
+                            Thread.yield();
+                        }
+                        return null;
+                    });
+                }
+            }));
+        }
+        try {
+            for (long id = live; id < live + 1_000; id++) {
+                ordinals.release(id - live);
+                // a lookup registered before the release may not have counted its entry yet;
+                // four entries later both readers have left every lookup that could have
+                long released = entries.get();
+                while (entries.get() < released + 4) {
+                    Thread.yield();
+                }
+                ordinals.acquire(id);
+            }
+        } finally {
+            running.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+
+        assertThat(ordinals.assigned()).isLessThanOrEqualTo(live + 1);
+    }
+
+    @Test
+    @DisplayName("Should forget dictionary codes on clear and not mistake a reissued code for the old value")
+    void testDictionaryCleared() {
+        StringDictionary dictionary = new StringDictionary();
+        int stoicism = dictionary.encode("Stoicism");
+        dictionary.encode("Zen");
+        dictionary.clear();
+
+        assertThat(dictionary.size()).isZero();
+        assertThat(dictionary.code("Stoicism")).isEqualTo(StringDictionary.NULL_CODE);
+        assertThat(dictionary.decode(1)).isNull();
+        assertThat(dictionary.encode("Taoism")).isEqualTo(stoicism);
+
+        Item old = new Item("Old", "Desc");
+        old.setCategory("Stoicism");
+        old.setAuthor("Seneca");
+        old.addTag("stoic");
+        repository.save(old);
+        repository.deleteAll();
+        Item fresh = new Item("Fresh", "Desc");
+        fresh.setCategory("Zen");
+        fresh.setAuthor("Dogen");
+        fresh.addTag("zen");
+        repository.save(fresh);
+
+        assertThat(repository.findByCategory("Stoicism")).isEmpty();
+        assertThat(repository.findByAuthor("Seneca")).isEmpty();
+        assertThat(repository.findByTag("stoic")).isEmpty();
+        assertThat(repository.findByCategory("Zen")).extracting(Item::getTitle).containsExactly("Fresh");
+        assertThat(repository.findByAnyTag(Set.of("stoic", "zen"))).extracting(Item::getTitle).containsExactly("Fresh");
+        assertThat(repository.countByTag()).containsOnlyKeys("zen");
+    }
+
+    @Test
+    @DisplayName("Should find items by tag after their ordinals are reused")
+    void testTagLookupAfterOrdinalReuse() {
+        Item old = new Item("Old", "Desc");
+        old.addTag("stoic");
+        Item kept = new Item("Kept", "Desc");
+        kept.addTag("stoic");
+        repository.saveAll(List.of(old, kept));
+        repository.deleteById(old.getId());
+
+        Item fresh = new Item("Fresh", "Desc");
+        fresh.addTag("zen");
+        repository.save(fresh);
+
+        assertThat(repository.findByTag("stoic")).extracting(Item::getTitle).containsExactly("Kept");
+        assertThat(repository.findByTag("zen")).extracting(Item::getTitle).containsExactly("Fresh");
+        assertThat(repository.findByTitleContaining("Old")).isEmpty();
+        assertThat(repository.search("fresh", null, 10).items()).extracting(Item::getTitle).containsExactly("Fresh");
+    }
+
+    @Test
+    @DisplayName("Should rank -0.0 as zero and NaN below every rating")
+    void testRatingEdgeValues() {
+        Item zero = new Item("Zero", "Desc");
+        Item negativeZero = new Item("Negative zero", "Desc");
+        negativeZero.setRating(-0.0);
+        Item nan = new Item("NaN", "Desc");
+        nan.setRating(Double.NaN);
+        Item one = new Item("One", "Desc");
+        one.setRating(1.0);
+        repository.saveAll(List.of(zero, negativeZero, nan, one));
+
+        assertThat(repository.findByMinRating(0.0)).extracting(Item::getTitle)
+                .containsExactly("Zero", "Negative zero", "One");
+        assertThat(repository.findByMinRating(-0.0)).extracting(Item::getTitle)
+                .containsExactly("Zero", "Negative zero", "One");
+        assertThat(repository.findByMinRating(Double.NaN)).isEmpty();
+        assertThat(repository.findTopRated(4)).extracting(Item::getTitle)
+                .containsExactly("One", "Negative zero", "Zero", "NaN");
+    }
+
+    @Test
+    @DisplayName("Should find items created within a range in time order")
+    void testFindByDateRange() {
+        LocalDateTime start = LocalDateTime.now().minusSeconds(1);
+        Item first = repository.save(new Item("First", "Desc"));
+        Item second = repository.save(new Item("Second", "Desc"));
+        Item third = repository.save(new Item("Third", "Desc"));
+        LocalDateTime end = LocalDateTime.now().plusSeconds(1);
+
+        assertThat(repository.findByDateRange(start, end)).containsExactly(first, second, third);
+        assertThat(repository.findByDateRange(end, end.plusDays(1))).isEmpty();
+        assertThat(repository.findByDateRange(end, start)).isEmpty();
+
+        repository.deleteById(second.getId());
+
+        assertThat(repository.findByDateRange(start, end)).containsExactly(first, third);
+    }
+
+    @Test
+    @DisplayName("Should page through items with keyset cursors")
+    void testKeysetPagination() {
+        for (int i = 1; i <= 5; i++) {
+            Item item = new Item("Item " + i, "Desc");
+            item.setCategory(i % 2 == 0 ? "Even" : "Odd");
+            repository.save(item);
+        }
+
+        Page<Item> first = repository.findAll(null, 2);
+        assertThat(first.items()).extracting(Item::getTitle).containsExactly("Item 1", "Item 2");
+        assertThat(first.nextCursor()).isEqualTo(String.valueOf(first.items().get(1).getId()));
+
+        Page<Item> last = repository.findAll(Long.valueOf(first.nextCursor()) + 2, 2);
+        assertThat(last.items()).extracting(Item::getTitle).containsExactly("Item 5");
+        assertThat(last.nextCursor()).isNull();
+
+        Page<Item> odd = repository.findByCategory("Odd", 1L, 10);
+        assertThat(odd.items()).extracting(Item::getTitle).containsExactly("Item 3", "Item 5");
+
+        Page<Item> active = repository.findByStatus(Item.Status.ACTIVE, 3L, 1);
+        assertThat(active.items()).extracting(Item::getTitle).containsExactly("Item 4");
+    }
+
+    @Test
+    @DisplayName("Should page through ranked search results with opaque cursors")
+    void testSearchPagination() {
+        for (int i = 1; i <= 5; i++) {
+            repository.save(new Item("Quote " + i, "wisdom " + "wisdom ".repeat(i)));
+        }
+
+        Page<Item> first = repository.search("wisdom", null, 3);
+        Page<Item> second = repository.search("wisdom", first.nextCursor(), 3);
+
+        assertThat(first.items()).extracting(Item::getTitle)
+                .containsExactly("Quote 5", "Quote 4", "Quote 3");
+        assertThat(second.items()).extracting(Item::getTitle)
+                .containsExactly("Quote 2", "Quote 1");
+        assertThat(second.nextCursor()).isNull();
+        assertThatThrownBy(() -> repository.search("wisdom", "not a cursor", 3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(repository.search("wisdom", null, 0)).isEqualTo(new Page<>(List.of(), null));
+        assertThat(repository.search("no such word", null, 0).items()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should reserve a contiguous id block and index a whole batch")
+    void testSaveAllBatch() {
+        Item existing = repository.save(new Item("Existing", "Desc")).mutableCopy();
+        existing.setCategory("Updated");
+        Item first = new Item("First", "Desc");
+        first.setCategory("New");
+        Item second = new Item("Second", "Desc");
+        second.setCategory("New");
+
+        repository.saveAll(List.of(first, existing, second));
+
+        assertThat(second.getId()).isEqualTo(first.getId() + 1);
+        assertThat(repository.findByCategory("New")).containsExactly(first, second);
+        assertThat(repository.findByCategory("Updated")).containsExactly(existing);
+        assertThat(repository.save(new Item("Next", "Desc")).getId()).isEqualTo(second.getId() + 1);
+    }
+
+    @Test
+    @DisplayName("Should share one instance per distinct category, author and tag")
+    void testDictionaryEncoding() {
+        Item first = new Item("First", "Desc");
+        first.setCategory(new String("Stoicism"));
+        first.setAuthor(new String("Seneca"));
+        first.addTag(new String("classic"));
+        Item second = new Item("Second", "Desc");
+        second.setCategory(new String("Stoicism"));
+        second.setAuthor(new String("Seneca"));
+        second.addTag(new String("classic"));
+        LocalDateTime updatedAt = second.getUpdatedAt();
+        repository.saveAll(List.of(first, second));
+
+        assertThat(second.getCategory()).isSameAs(first.getCategory());
+        assertThat(second.getAuthor()).isSameAs(first.getAuthor());
+        assertThat(second.getTags().iterator().next()).isSameAs(first.getTags().iterator().next());
+        assertThat(second.getUpdatedAt()).isEqualTo(updatedAt);
+        assertThat(repository.findByCategory("Stoicism")).containsExactly(first, second);
+        assertThat(repository.findByAuthor("Seneca")).containsExactly(first, second);
+        assertThat(repository.findByCategory("Unknown")).isEmpty();
+        assertThat(repository.findByAuthor("Unknown")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should look up items through the primitive id fast path")
+    void testFindByIdOrNull() {
+        Item saved = repository.save(new Item("Fast", "Desc"));
+
+        assertThat(repository.findByIdOrNull(saved.getId())).isSameAs(saved);
+        assertThat(repository.findByIdOrNull(999L)).isNull();
+
+        repository.deleteById(saved.getId());
+
+        assertThat(repository.findByIdOrNull(saved.getId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep status, category and tag aggregates in step with writes")
+    void testAggregatesFollowWrites() {
+        Item first = new Item("First", "Desc");
+        first.setCategory("Stoicism");
+        first.addTag("classic");
+        first.addTag("ethics");
+        Item second = new Item("Second", "Desc");
+        second.setCategory("Stoicism");
+        second.addTag("classic");
+        repository.saveAll(List.of(first, second));
+
+        assertThat(repository.countByStatus()).containsExactly(Map.entry(Item.Status.ACTIVE, 2L));
+        assertThat(repository.findAllCategories()).containsExactly("Stoicism");
+        assertThat(repository.countByTag()).containsOnly(Map.entry("classic", 2L), Map.entry("ethics", 1L));
+
+        first.setStatus(Item.Status.ARCHIVED);
+        first.setCategory("Ethics");
+        first.setTags(Set.of("ethics", "modern"));
+        repository.save(first);
+
+        assertThat(repository.countByStatus())
+                .containsOnly(Map.entry(Item.Status.ACTIVE, 1L), Map.entry(Item.Status.ARCHIVED, 1L));
+        assertThat(repository.findAllCategories()).containsExactlyInAnyOrder("Stoicism", "Ethics");
+        assertThat(repository.countByTag())
+                .containsOnly(Map.entry("classic", 1L), Map.entry("ethics", 1L), Map.entry("modern", 1L));
+
+        repository.deleteById(second.getId());
+
+        assertThat(repository.countByStatus()).containsOnly(Map.entry(Item.Status.ARCHIVED, 1L));
+        assertThat(repository.findAllCategories()).containsExactly("Ethics");
+        assertThat(repository.countByTag()).doesNotContainKey("classic");
+
+        repository.deleteAll();
+
+        assertThat(repository.countByStatus()).isEmpty();
+        assertThat(repository.findAllCategories()).isEmpty();
+        assertThat(repository.countByTag()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should re-rank popular tags as tags are added and removed")
+    void testMostPopularTags() {
+        Item first = new Item("First", "Desc");
+        first.setTags(Set.of("stoic", "classic"));
+        Item second = new Item("Second", "Desc");
+        second.setTags(Set.of("stoic", "modern"));
+        Item third = new Item("Third", "Desc");
+        third.setTags(Set.of("modern"));
+        repository.saveAll(List.of(first, second, third));
+
+        assertThat(repository.findMostPopularTags(3)).containsExactly("modern", "stoic", "classic");
+
+        third.setTags(Set.of("classic"));
+        repository.save(third);
+        repository.deleteById(second.getId());
+
+        assertThat(repository.findMostPopularTags(2)).containsExactly("classic", "stoic");
+        assertThat(repository.findMostPopularTags(10)).containsExactly("classic", "stoic");
+    }
+
+    @Test
+    @DisplayName("Should keep sketch estimates close to the exact aggregates")
+    void testApproximateStatistics() {
+        List<Item> quotes = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Item quote = new Item("Quote " + i, "Desc");
+            quote.setAuthor("Author " + (i % 3_000));
+            quote.setCategory("Category " + (i % 40));
+            quote.setTags(Set.of("tag" + (i % 500), "theme" + (i % 7)));
+            quotes.add(quote);
+        }
+        repository.saveAll(quotes);
+        for (int i = 0; i < 5_000; i++) {
+            repository.deleteById(quotes.get(i).getId());
+        }
+
+        Estimate authors = repository.estimateDistinctAuthors();
+        assertThat(authors.value()).isCloseTo(3_000L, within(authors.errorBound()));
+        Estimate tags = repository.estimateDistinctTags();
+        assertThat(tags.value()).isCloseTo((long) repository.countByTag().size(), within(tags.errorBound()));
+
+        repository.countByTag().forEach((tag, count) -> {
+            Estimate frequency = repository.estimateTagFrequency(tag.toUpperCase());
+            assertThat(frequency.value()).isBetween(count, count + frequency.errorBound());
+        });
+        Map<String, Long> perCategory = repository.stream()
+                .collect(Collectors.groupingBy(Item::getCategory, Collectors.counting()));
+        perCategory.forEach((category, count) -> {
+            Estimate frequency = repository.estimateCategoryFrequency(category);
+            assertThat(frequency.value()).isBetween(count, count + frequency.errorBound());
+        });
+
+        repository.deleteAll();
+
+        assertThat(repository.estimateDistinctAuthors().value()).isZero();
+        assertThat(repository.estimateTagFrequency("tag1").value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should find every stored id through the id filter as it grows")
+    void testIdFilter() {
+        List<Item> quotes = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            quotes.add(new Item("Quote " + i, "Desc"));
+        }
+        repository.saveAll(quotes.subList(0, 20_000));
+        for (Item quote : quotes.subList(20_000, 40_000)) {
+            repository.save(quote);
+        }
+        for (int i = 0; i < 40_000; i += 2) {
+            repository.deleteById(quotes.get(i).getId());
+        }
+
+        for (int i = 0; i < 40_000; i++) {
+            Long id = quotes.get(i).getId();
+            assertThat(repository.existsById(id)).isEqualTo(i % 2 == 1);
+            assertThat(repository.findById(id)).isEqualTo(i % 2 == 1 ? Optional.of(quotes.get(i)) : Optional.empty());
+        }
+        List<Long> ids = List.of(quotes.get(0).getId(), quotes.get(1).getId(), 999_999L, quotes.get(3).getId());
+        assertThat(repository.findExistingIds(ids)).containsExactly(quotes.get(1).getId(), quotes.get(3).getId());
+    }
+
+    @Test
+    @DisplayName("Should replace only items that are stored")
+    void testReplace() {
+        Item stored = repository.save(new Item("Stored", "Desc"));
+        Item update = new Item("Updated", "Desc");
+        update.setId(stored.getId());
+
+        assertThat(repository.replace(update)).contains(update);
+        assertThat(repository.findById(stored.getId())).contains(update);
+
+        Item missing = new Item("Missing", "Desc");
+        missing.setId(12_345L);
+        assertThat(repository.replace(missing)).isEmpty();
+        assertThat(repository.existsById(12_345L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should bump versions on save and reject stale conditional writes")
+    void testVersions() {
+        Item item = repository.save(new Item("First", "Desc"));
+        assertThat(item.getVersion()).isEqualTo(1);
+        assertThat(repository.save(item).getVersion()).isEqualTo(2);
+
+        Item update = new Item("Second", "Desc");
+        update.setId(item.getId());
+        assertThatThrownBy(() -> repository.replace(update, 1))
+                .isInstanceOf(VersionConflictException.class)
+                .extracting(e -> ((VersionConflictException) e).getCurrentVersion())
+                .isEqualTo(2L);
+        assertThat(repository.replace(update, 2)).contains(update);
+        assertThat(update.getVersion()).isEqualTo(3);
+        assertThat(repository.findById(item.getId())).contains(update);
+    }
+
+    @Test
+    @DisplayName("Should lose no updates when 64 threads compare-and-set the same items")
+    void testConcurrentCompareAndSet() throws Exception {
+        List<Item> counters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Item counter = new Item("Counter " + i, "0");
+            counters.add(repository.save(counter));
+        }
+        int threads = 64;
+        int incrementsPerThread = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Long id = counters.get(t % counters.size()).getId();
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    while (true) {
+                        Item current = repository.findById(id).orElseThrow();
+                        Item next = new Item(current.getTitle(),
+                                String.valueOf(Long.parseLong(current.getDescription()) + 1));
+                        next.setId(id);
+                        try {
+                            repository.replace(next, current.getVersion());
+                            break;
+                        } catch (VersionConflictException e) {
+                            // another thread won; read again and retry
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        long perCounter = (long) threads / counters.size() * incrementsPerThread;
+        for (Item counter : counters) {
+            Item stored = repository.findById(counter.getId()).orElseThrow();
+            assertThat(stored.getDescription()).isEqualTo(String.valueOf(perCounter));
+            assertThat(stored.getVersion()).isEqualTo(perCounter + 1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should store immutable copies that only change when saved")
+    void testImmutableStoredCopies() {
+        Item item = new Item("Original", "Desc");
+        item.addTag("classic");
+        Item stored = repository.save(item);
+        item.setTitle("Changed by the caller");
+
+        assertThat(stored.isImmutable()).isTrue();
+        assertThat(repository.findById(stored.getId())).containsSame(stored);
+        assertThat(stored.getTitle()).isEqualTo("Original");
+        assertThat(repository.findByTitleContaining("original")).containsExactly(stored);
+        assertThatThrownBy(() -> stored.setTitle("Changed")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> stored.getTags().add("modern")).isInstanceOf(UnsupportedOperationException.class);
+
+        Item copy = stored.mutableCopy();
+        copy.setTitle("Updated");
+        Item updated = repository.save(copy);
+
+        assertThat(stored.getTitle()).isEqualTo("Original");
+        assertThat(updated.getVersion()).isEqualTo(stored.getVersion() + 1);
+        assertThat(repository.findByTitleContaining("updated")).containsExactly(updated);
+        assertThat(repository.save(updated).getVersion()).isEqualTo(updated.getVersion() + 1);
+    }
+
+    @Test
+    @DisplayName("Should normalize tags once when they are set")
+    void testTagsNormalizedAtIngest() {
+        Item item = new Item("Meditations", "Desc");
+        item.setTags(Set.of(" Stoic ", "CLASSIC", " ", "stoic"));
+        Item stored = repository.save(item);
+
+        assertThat(stored.getTags()).containsExactly("classic", "stoic");
+        assertThat(stored.hasTag("stoic")).isTrue();
+        assertThat(stored.hasTag(" STOIC")).isTrue();
+        assertThat(stored.hasTag("\tClassic\n")).isTrue();
+        assertThat(stored.hasTag("stoi")).isFalse();
+        assertThat(stored.hasTag("modern")).isFalse();
+
+        Item copy = stored.mutableCopy();
+        copy.addTag("Modern");
+        copy.removeTag("CLASSIC");
+        assertThat(copy.getTags()).containsExactly("modern", "stoic");
+        assertThat(stored.getTags()).containsExactly("classic", "stoic");
+        assertThat(repository.findByTag("Classic")).containsExactly(stored);
+        assertThat(repository.findByAllTags(Set.of("stoic", "classic"))).containsExactly(stored);
+        assertThat(repository.countByTag()).containsOnlyKeys("stoic", "classic");
+    }
+}
@@ -0,0 +1,152 @@
+package edu.trincoll.repository;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.offheap.OffHeapQuoteRepository;
+import edu.trincoll.repository.persistence.SnapshotStore;
+import edu.trincoll.repository.persistence.WriteAheadLog;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Runs the repositories under contention from virtual threads while recording
+ * the JFR {@code jdk.VirtualThreadPinned} event. The event fires whenever a
+ * virtual thread blocks while pinned to its carrier, for example inside a
+ * {@code synchronized} block, which is the condition
+ * {@code -Djdk.tracePinnedThreads} prints. Any event is a hazard.
+ */
+class VirtualThreadPinningTest {
+
+    private static final int THREADS = 128;
+    private static final int OPERATIONS = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Recording should report a virtual thread blocking inside synchronized")
+    void testTracingDetectsPinning() throws Exception {
+        Object monitor = new Object();
+        List<String> pinned = recordPinning(() -> {
+            synchronized (monitor) {
+                sleep();
+            }
+        });
+
+        assertThat(pinned).anyMatch(frame -> frame.contains("VirtualThreadPinningTest"));
+    }
+
+    @Test
+    @DisplayName("In-memory repository with log and snapshots should never pin a virtual thread")
+    void testInMemoryRepository() throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(dir.resolve("quotes.wal"), WriteAheadLog.FsyncPolicy.ALWAYS,
+                Duration.ZERO)) {
+            InMemoryQuoteRepository repository =
+                    new InMemoryQuoteRepository(wal, new SnapshotStore(dir.resolve("snapshots"), 2));
+            assertThat(recordPinning(workload(repository, repository::snapshot))).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Off-heap repository should never pin a virtual thread")
+    void testOffHeapRepository() throws Exception {
+        OffHeapQuoteRepository repository = new OffHeapQuoteRepository();
+        assertThat(recordPinning(workload(repository, repository::count))).isEmpty();
+    }
+
+    /**
+     * Reads and writes from every thread, with compare-and-set updates
+     * racing on a few hot items so the lock stripes are contended
+     */
+    private static Runnable workload(QuoteRepository repository, Runnable occasionally) {
+        List<Item> hot = repository.saveAll(List.of(quote(0), quote(1), quote(2), quote(3)));
+        return () -> {
+            SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+            for (int i = 0; i < OPERATIONS; i++) {
+                Item saved = repository.save(quote(random.nextInt(100)));
+                Item target = repository.findByIdOrNull(hot.get(random.nextInt(hot.size())).getId());
+                Item copy = target.mutableCopy();
+                copy.setRating(random.nextInt(6));
+                try {
+                    repository.replace(copy, target.getVersion());
+                } catch (VersionConflictException e) {
+                    // lost the race, as expected under contention
+                }
+                repository.findByTag("tag-" + random.nextInt(10));
+                repository.findByAnyTag(Set.of("tag-1", "tag-2"));
+                repository.search("stoic", null, 10);
+                repository.findExistingIds(List.of(saved.getId(), saved.getId() + 1_000_000));
+                repository.countByTag();
+                if (random.nextInt(4) == 0) {
+                    repository.deleteById(saved.getId());
+                }
+                if (random.nextInt(100) == 0) {
+                    occasionally.run();
+                }
+            }
+        };
+    }
+
+    private static Item quote(int n) {
+        Item item = new Item("Stoic quote " + n, "On patience and virtue");
+        item.setCategory("category-" + n % 5);
+        item.setAuthor("Author " + n % 7);
+        item.setTags(Set.of("tag-" + n % 10, "theme-" + n % 3));
+        return item;
+    }
+
+    /**
+     * Run a task on {@link #THREADS} virtual threads and return the top frame
+     * of every pinned block recorded meanwhile
+     */
+    private List<String> recordPinning(Runnable task) throws Exception {
+        List<Future<?>> results = new ArrayList<>();
+        Path file = dir.resolve("pinning.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < THREADS; i++) {
+                    results.add(executor.submit(task));
+                }
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        List<String> pinned = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            pinned.add(event.getStackTrace() == null ? "unknown" : event.getStackTrace().getFrames().stream()
+                    .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                    .filter(frame -> frame.startsWith("edu.trincoll"))
+                    .findFirst()
+                    .orElse(event.getStackTrace().getFrames().get(0).getMethod().getName()));
+        }
+        return pinned;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.trincoll.repository.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RankedCodeCountsTest {
+
+    @Test
+    @DisplayName("Should keep the heavy hitters in order after falling back to a summary")
+    void testFallbackToSummary() {
+        StringDictionary names = new StringDictionary();
+        RankedCodeCounts counts = new RankedCodeCounts(names, 100, 16);
+        for (int i = 0; i < 3; i++) {
+            counts.add(names.encode("popular-" + i), 1_000 - i * 100);
+        }
+        counts.add(names.encode("rare-0"), 1);
+        assertThat(counts.isApproximate()).isFalse();
+        assertThat(counts.top(4)).containsExactly("popular-0", "popular-1", "popular-2", "rare-0");
+
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            counts.add(names.encode("rare-" + random.nextInt(2_000)), 1);
+        }
+        // a heavy hitter losing references is re-ranked by its exact count
+        counts.add(names.encode("popular-0"), -500);
+
+        assertThat(counts.isApproximate()).isTrue();
+        assertThat(counts.view()).hasSizeGreaterThan(100);
+        assertThat(counts.top(3)).containsExactly("popular-1", "popular-2", "popular-0");
+        assertThat(counts.top(1_000)).hasSizeLessThanOrEqualTo(16);
+
+        counts.clear();
+        counts.add(names.encode("again"), 1);
+        assertThat(counts.isApproximate()).isFalse();
+        assertThat(counts.top(5)).containsExactly("again");
+    }
+
+    @Test
+    @DisplayName("Should return nothing for a limit that is not positive")
+    void testNonPositiveLimit() {
+        StringDictionary names = new StringDictionary();
+        RankedCodeCounts counts = new RankedCodeCounts(names);
+        counts.add(names.encode("virtue"), 1);
+
+        assertThat(counts.top(0)).isEmpty();
+        assertThat(counts.top(-1)).isEmpty();
+    }
+}
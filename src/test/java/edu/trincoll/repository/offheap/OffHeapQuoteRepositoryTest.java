@@ -0,0 +1,256 @@
+package edu.trincoll.repository.offheap;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.Page;
+import edu.trincoll.repository.VersionConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OffHeapQuoteRepositoryTest {
+
+    private OffHeapQuoteRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new OffHeapQuoteRepository();
+    }
+
+    @Test
+    @DisplayName("Should materialize every field exactly as it was saved")
+    void testRoundTrip() {
+        Item item = new Item("Meditations", "Waste no more time arguing — ünïcödé");
+        item.setCategory("Stoicism");
+        item.setAuthor("Marcus Aurelius");
+        item.setStatus(Item.Status.ARCHIVED);
+        item.setFavorite(true);
+        item.setRating(4.75);
+        item.addTag("Classic");
+        item.addTag("ethics");
+        repository.save(item);
+
+        Item found = repository.findById(item.getId()).orElseThrow();
+
+        assertThat(found).isNotSameAs(item);
+        assertThat(found).usingRecursiveComparison().isEqualTo(item);
+        assertThat(repository.findById(999L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should leave the store unchanged when a returned item is modified but not saved")
+    void testReturnedItemsAreDetached() {
+        Item item = repository.save(new Item("Original", "Desc"));
+
+        repository.findById(item.getId()).orElseThrow().setTitle("Changed");
+
+        assertThat(repository.findById(item.getId()).orElseThrow().getTitle()).isEqualTo("Original");
+    }
+
+    @Test
+    @DisplayName("Should answer column finders and follow updates and deletes")
+    void testFindersFollowWrites() {
+        Item seneca = new Item("Letters", "On the shortness of life");
+        seneca.setCategory("Stoicism");
+        seneca.setAuthor("Seneca");
+        seneca.addTag("classic");
+        Item other = new Item("Other", "Desc");
+        other.setCategory("Modern");
+        other.addTag("modern");
+        repository.saveAll(List.of(seneca, other));
+
+        seneca.setCategory("Wisdom");
+        seneca.setStatus(Item.Status.INACTIVE);
+        seneca.setFavorite(true);
+        seneca.setTitle("A much longer title than the one the row held before");
+        seneca.setTags(Set.of("classic", "letters"));
+        repository.save(seneca);
+
+        assertThat(repository.findByCategory("Stoicism")).isEmpty();
+        assertThat(repository.findByCategory("Wisdom")).extracting(Item::getId).containsExactly(seneca.getId());
+        assertThat(repository.findByStatus(Item.Status.INACTIVE)).extracting(Item::getId).containsExactly(seneca.getId());
+        assertThat(repository.findByAuthor("Seneca")).hasSize(1);
+        assertThat(repository.findFavorites()).hasSize(1);
+        assertThat(repository.findByAllTags(Set.of(" Classic", "LETTERS"))).hasSize(1);
+        assertThat(repository.findByAnyTag(Set.of("letters", "modern"))).hasSize(2);
+        assertThat(repository.findByAllTags(Set.of("classic", "unknown"))).isEmpty();
+        assertThat(repository.findByTitleContaining("LONGER")).hasSize(1);
+        assertThat(repository.findByTitleContaining("letters")).isEmpty();
+
+        repository.deleteById(seneca.getId());
+
+        assertThat(repository.findByTag("classic")).isEmpty();
+        assertThat(repository.findFavorites()).isEmpty();
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reuse freed rows and keep every id reachable across many deletes")
+    void testRowReuse() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            items.add(new Item("Quote " + i, "Desc"));
+        }
+        repository.saveAll(items);
+        for (long id = 1; id <= 40_000; id += 3) {
+            repository.deleteById(id);
+        }
+        for (int i = 0; i < 100; i++) {
+            repository.save(new Item("Replacement " + i, "Desc"));
+        }
+
+        assertThat(repository.count()).isEqualTo(40_000 - 13_334 + 100);
+        for (long id = 1; id <= 40_000; id++) {
+            assertThat(repository.existsById(id)).isEqualTo(id % 3 != 1);
+        }
+        assertThat(repository.findByTitleContaining("Replacement")).hasSize(100);
+    }
+
+    @Test
+    @DisplayName("Should order rating, date and id queries like the in-memory repository")
+    void testOrderedQueries() {
+        LocalDateTime start = LocalDateTime.now().minusSeconds(1);
+        Item low = new Item("Low", "Desc");
+        low.setRating(1.5);
+        Item mid = new Item("Mid", "Desc");
+        mid.setRating(3.0);
+        Item high = new Item("High", "Desc");
+        high.setRating(4.5);
+        repository.saveAll(List.of(low, mid, high));
+        LocalDateTime end = LocalDateTime.now().plusSeconds(1);
+
+        assertThat(repository.findByMinRating(3.0)).extracting(Item::getTitle).containsExactly("Mid", "High");
+        assertThat(repository.findTopRated(2)).extracting(Item::getTitle).containsExactly("High", "Mid");
+        assertThat(repository.findByDateRange(start, end)).extracting(Item::getTitle)
+                .containsExactly("Low", "Mid", "High");
+        assertThat(repository.findByDateRange(end, start)).isEmpty();
+
+        Page<Item> first = repository.findAll(null, 2);
+        assertThat(first.items()).extracting(Item::getTitle).containsExactly("Low", "Mid");
+        Page<Item> second = repository.findAll(Long.valueOf(first.nextCursor()), 2);
+        assertThat(second.items()).extracting(Item::getTitle).containsExactly("High");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should rank -0.0 as zero and NaN below every rating")
+    void testRatingEdgeValues() {
+        Item zero = new Item("Zero", "Desc");
+        Item negativeZero = new Item("Negative zero", "Desc");
+        negativeZero.setRating(-0.0);
+        Item nan = new Item("NaN", "Desc");
+        nan.setRating(Double.NaN);
+        Item one = new Item("One", "Desc");
+        one.setRating(1.0);
+        repository.saveAll(List.of(zero, negativeZero, nan, one));
+
+        assertThat(repository.findByMinRating(0.0)).extracting(Item::getTitle)
+                .containsExactly("Zero", "Negative zero", "One");
+        assertThat(repository.findByMinRating(-0.0)).extracting(Item::getTitle)
+                .containsExactly("Zero", "Negative zero", "One");
+        assertThat(repository.findByMinRating(Double.NaN)).isEmpty();
+        assertThat(repository.findTopRated(4)).extracting(Item::getTitle)
+                .containsExactly("One", "Negative zero", "Zero", "NaN");
+    }
+
+    @Test
+    @DisplayName("Should rank search results and stream every stored quote")
+    void testSearchAndStream() {
+        for (int i = 1; i <= 3; i++) {
+            repository.save(new Item("Quote " + i, "wisdom " + "wisdom ".repeat(i)));
+        }
+
+        assertThat(repository.search("wisdom", null, 10).items()).extracting(Item::getTitle)
+                .containsExactly("Quote 3", "Quote 2", "Quote 1");
+        assertThat(repository.stream()).hasSize(3);
+
+        repository.deleteAll();
+
+        assertThat(repository.findAll()).isEmpty();
+        assertThat(repository.search("wisdom", null, 10).items()).isEmpty();
+        assertThat(repository.search("wisdom", null, 0).items()).isEmpty();
+        assertThat(repository.save(new Item("Fresh", "Desc")).getId()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Should version rows and reject stale conditional writes")
+    void testVersions() {
+        Item item = repository.save(new Item("First", "Desc"));
+        assertThat(item.getVersion()).isEqualTo(1);
+
+        Item update = new Item("Second", "Desc");
+        update.setId(item.getId());
+        assertThat(repository.replace(update, 1)).isPresent();
+        assertThat(repository.findById(item.getId()).orElseThrow().getVersion()).isEqualTo(2);
+
+        Item stale = new Item("Stale", "Desc");
+        stale.setId(item.getId());
+        assertThatThrownBy(() -> repository.replace(stale, 1))
+                .isInstanceOf(VersionConflictException.class);
+        assertThat(repository.findById(item.getId()).orElseThrow().getTitle()).isEqualTo("Second");
+    }
+
+    @Test
+    @DisplayName("Should reuse freed blob space so churn does not grow off-heap memory")
+    void testFreedSpaceReused() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            items.add(new Item("Quote " + i, "Short"));
+        }
+        repository.saveAll(items);
+        long settled = 0;
+        for (int round = 0; round < 50; round++) {
+            for (Item item : items) {
+                Item copy = repository.findById(item.getId()).orElseThrow();
+                // alternate between lengths that do not fit each other's space
+                copy.setDescription(round % 2 == 0 ? "A much longer description than before " + round : "Short");
+                repository.save(copy);
+            }
+            Item gone = repository.save(new Item("Temporary " + round, "Deleted again"));
+            repository.deleteById(gone.getId());
+            if (round == 1) {
+                settled = repository.offHeapBytes();
+            }
+        }
+
+        assertThat(repository.offHeapBytes()).isEqualTo(settled);
+    }
+
+    @Test
+    @DisplayName("Should match titles case-insensitively, including non-ASCII text")
+    void testTitleContaining() {
+        repository.save(new Item("On the Shortness of Life", "Desc"));
+        repository.save(new Item("Über die Kürze des Lebens", "Desc"));
+
+        assertThat(repository.findByTitleContaining("SHORTNESS")).hasSize(1);
+        assertThat(repository.findByTitleContaining("kürze")).hasSize(1);
+        assertThat(repository.findByTitleContaining("LEBENS")).hasSize(1);
+        assertThat(repository.findByTitleContaining("life!")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should match non-ASCII titles that lower-case to ASCII as the in-memory repository does")
+    void testTitleLowerCasingToAscii() {
+        // KELVIN SIGN lower-cases to an ASCII k
+        repository.save(new Item("\u212Aindness", "Desc"));
+
+        assertThat(repository.findByTitleContaining("kind")).hasSize(1);
+        assertThat(repository.findByTitleContaining("KIND")).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should treat a null id as missing")
+    void testNullId() {
+        Item saved = repository.save(new Item("Quote", "Desc"));
+
+        assertThat(repository.existsById(null)).isFalse();
+        assertThat(repository.findExistingIds(Arrays.asList(null, saved.getId()))).containsExactly(saved.getId());
+    }
+}
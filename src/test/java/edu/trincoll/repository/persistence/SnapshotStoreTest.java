@@ -0,0 +1,264 @@
+package edu.trincoll.repository.persistence;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.InMemoryQuoteRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private WriteAheadLog openLog() throws IOException {
+        return new WriteAheadLog(dir.resolve("quotes.wal"), WriteAheadLog.FsyncPolicy.OS, Duration.ZERO);
+    }
+
+    private SnapshotStore openSnapshots() throws IOException {
+        return new SnapshotStore(dir.resolve("snapshots"), 2);
+    }
+
+    @Test
+    @DisplayName("Should restore the snapshot and replay only the log written after it")
+    void testSnapshotPlusLogTail() throws IOException {
+        Item updated;
+        Item deleted;
+        try (WriteAheadLog wal = openLog()) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal, openSnapshots());
+            updated = new Item("Before", "Snapshotted");
+            updated.setCategory("Stoicism");
+            updated.addTag("classic");
+            repository.save(updated);
+            deleted = repository.save(new Item("Deleted", "After snapshot"));
+            repository.snapshot();
+
+            updated.setTitle("After");
+            repository.save(updated);
+            repository.deleteById(deleted.getId());
+            repository.save(new Item("New", "Only in log"));
+        }
+
+        try (WriteAheadLog wal = openLog()) {
+            InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(wal, openSnapshots());
+
+            assertThat(recovered.findAll()).extracting(Item::getTitle).containsExactlyInAnyOrder("After", "New");
+            assertThat(recovered.findById(deleted.getId())).isEmpty();
+            assertThat(recovered.findByCategory("Stoicism")).extracting(Item::getTitle).containsExactly("After");
+            assertThat(recovered.findByTag("classic")).hasSize(1);
+            assertThat(recovered.findById(updated.getId()).orElseThrow().getCreatedAt())
+                    .isEqualTo(updated.getCreatedAt());
+            assertThat(recovered.save(new Item("Next", "Desc")).getId()).isEqualTo(4L);
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore from snapshots alone when no log is configured")
+    void testSnapshotWithoutLog() throws IOException {
+        InMemoryQuoteRepository repository = new InMemoryQuoteRepository(null, openSnapshots());
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 25_000; i++) {
+            items.add(new Item("Quote " + i, "Description " + i));
+        }
+        repository.saveAll(items);
+        repository.snapshot();
+
+        InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(null, openSnapshots());
+
+        assertThat(recovered.count()).isEqualTo(25_000);
+        assertThat(recovered.findByTitleContaining("Quote 24999")).hasSize(1);
+        assertThat(recovered.save(new Item("Next", "Desc")).getId()).isEqualTo(25_001L);
+    }
+
+    @Test
+    @DisplayName("Should keep only the newest snapshots and fall back past a corrupt one")
+    void testRetentionAndCorruption() throws IOException {
+        SnapshotStore snapshots = openSnapshots();
+        InMemoryQuoteRepository repository = new InMemoryQuoteRepository(null, snapshots);
+        repository.save(new Item("First", "Desc"));
+        repository.snapshot();
+        repository.save(new Item("Second", "Desc"));
+        repository.snapshot();
+        repository.save(new Item("Third", "Desc"));
+        Path newest = repository.snapshot();
+
+        assertThat(snapshots.snapshots()).hasSize(2).first().isEqualTo(newest);
+
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            last.put(0, (byte) (last.get(0) ^ 0xff));
+            channel.write(last.rewind(), channel.size() - 1);
+        }
+        InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(null, openSnapshots());
+
+        assertThat(recovered.findAll()).extracting(Item::getTitle).containsExactlyInAnyOrder("First", "Second");
+    }
+
+    @Test
+    @DisplayName("Should replay a replaced log in full rather than skip to the snapshot's position")
+    void testReplacedLog() throws IOException {
+        try (WriteAheadLog wal = openLog()) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal, openSnapshots());
+            for (int i = 0; i < 50; i++) {
+                repository.save(new Item("Old " + i, "Desc"));
+            }
+            repository.snapshot();
+        }
+        Files.delete(dir.resolve("quotes.wal"));
+        try (WriteAheadLog wal = openLog()) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal, openSnapshots());
+            repository.save(new Item("New", "Written to the replacement log"));
+        }
+
+        try (WriteAheadLog wal = openLog()) {
+            InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(wal, openSnapshots());
+
+            assertThat(recovered.count()).isEqualTo(51);
+            assertThat(recovered.findByTitleContaining("New")).hasSize(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop log records every retained snapshot covers")
+    void testLogTruncatedAfterSnapshot() throws IOException {
+        long firstSnapshot;
+        try (WriteAheadLog wal = openLog()) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal, openSnapshots());
+            for (int i = 0; i < 100; i++) {
+                repository.save(new Item("Quote " + i, "Desc"));
+            }
+            firstSnapshot = wal.currentPosition();
+            repository.snapshot();
+            repository.save(new Item("Between", "Desc"));
+            repository.snapshot();
+
+            assertThat(wal.startPosition()).isEqualTo(firstSnapshot);
+            repository.save(new Item("After", "Desc"));
+            repository.snapshot();
+            assertThat(wal.startPosition()).isGreaterThan(firstSnapshot);
+        }
+
+        try (WriteAheadLog wal = openLog()) {
+            assertThat(Files.size(dir.resolve("quotes.wal"))).isLessThan(firstSnapshot);
+            InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(wal, openSnapshots());
+
+            assertThat(recovered.count()).isEqualTo(102);
+            assertThat(recovered.save(new Item("Next", "Desc")).getId()).isEqualTo(103L);
+        }
+    }
+
+    @Test
+    @DisplayName("Should lose and revive nothing when a snapshot is taken mid-write")
+    void testSnapshotDuringWrites() throws Exception {
+        Item kept;
+        Item deleted;
+        try (GatedLog wal = new GatedLog(dir.resolve("quotes.wal"))) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal, openSnapshots());
+            deleted = repository.save(new Item("Deleted", "Desc"));
+            kept = new Item("Kept", "Desc");
+
+            // each write stops after its log record is appended, before storage sees it
+            for (Runnable write : List.<Runnable>of(() -> repository.deleteById(deleted.getId()),
+                    () -> repository.save(kept))) {
+                CountDownLatch gate = new CountDownLatch(1);
+                wal.gate = gate;
+                Thread writer = Thread.ofPlatform().start(write);
+                wal.appended.acquire();
+                Thread snapshotter = Thread.ofPlatform().start(repository::snapshot);
+                while (snapshotter.isAlive() && snapshotter.getState() != Thread.State.WAITING) {
+                    Thread.onSpinWait();
+                }
+                gate.countDown();
+                writer.join();
+                snapshotter.join();
+            }
+            assertThat(repository.findAll()).extracting(Item::getTitle).containsExactly("Kept");
+        }
+
+        try (WriteAheadLog wal = openLog()) {
+            InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(wal, openSnapshots());
+
+            assertThat(recovered.findById(deleted.getId())).isEmpty();
+            assertThat(recovered.findAll()).extracting(Item::getId).containsExactly(kept.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should delete the temporary file when a snapshot fails")
+    void testFailedSnapshotLeavesNoTempFile() throws IOException {
+        SnapshotStore snapshots = openSnapshots();
+        Iterable<Item> failing = () -> List.of(new Item("One", "Desc"), (Item) null).iterator();
+
+        assertThatThrownBy(() -> snapshots.write(0, 0, 1, failing)).isInstanceOf(RuntimeException.class);
+        try (Stream<Path> files = Files.list(dir.resolve("snapshots"))) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("Should delete temporary files a crash left behind when opened")
+    void testStaleTempFilesDeleted() throws IOException {
+        SnapshotStore snapshots = openSnapshots();
+        Path written = snapshots.write(0, 0, 1, List.of());
+        Path stale = dir.resolve("snapshots").resolve("quotes-0.tmp");
+        Files.write(stale, new byte[] {1, 2, 3});
+
+        openSnapshots();
+        try (Stream<Path> files = Files.list(dir.resolve("snapshots"))) {
+            assertThat(files).containsExactly(written);
+        }
+    }
+
+    /**
+     * A log that holds each append open until its gate is released, once a gate is set
+     */
+    private static class GatedLog extends WriteAheadLog {
+
+        final Semaphore appended = new Semaphore(0);
+        volatile CountDownLatch gate;
+
+        GatedLog(Path path) throws IOException {
+            super(path, FsyncPolicy.OS, Duration.ZERO);
+        }
+
+        @Override
+        public long appendSave(Item item) {
+            return hold(super.appendSave(item));
+        }
+
+        @Override
+        public long appendDelete(long id) {
+            return hold(super.appendDelete(id));
+        }
+
+        private long hold(long position) {
+            CountDownLatch waiting = gate;
+            if (waiting != null) {
+                gate = null;
+                appended.release();
+                try {
+                    waiting.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return position;
+        }
+    }
+}
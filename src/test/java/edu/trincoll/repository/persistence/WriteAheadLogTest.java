@@ -0,0 +1,133 @@
+package edu.trincoll.repository.persistence;
+
+import edu.trincoll.model.Item;
+import edu.trincoll.repository.InMemoryQuoteRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    private WriteAheadLog open(WriteAheadLog.FsyncPolicy policy) throws IOException {
+        return new WriteAheadLog(dir.resolve("quotes.wal"), policy, Duration.ofMillis(5));
+    }
+
+    @Test
+    @DisplayName("Should rebuild storage, indexes and id generator from the log")
+    void testRecoverAfterRestart() throws IOException {
+        Item kept;
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.INTERVAL)) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal);
+            kept = new Item("Kept", "Survives restarts");
+            kept.setCategory("Stoicism");
+            kept.addTag("classic");
+            repository.save(kept);
+            Item deleted = repository.save(new Item("Deleted", "Gone"));
+            kept.setRating(4.5);
+            repository.save(kept);
+            repository.deleteById(deleted.getId());
+        }
+
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.INTERVAL)) {
+            InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(wal);
+
+            assertThat(recovered.count()).isEqualTo(1);
+            Item item = recovered.findById(kept.getId()).orElseThrow();
+            assertThat(item.getTitle()).isEqualTo("Kept");
+            assertThat(item.getRating()).isEqualTo(4.5);
+            assertThat(item.getVersion()).isEqualTo(2);
+            assertThat(item.getCreatedAt()).isEqualTo(kept.getCreatedAt());
+            assertThat(recovered.findByCategory("Stoicism")).containsExactly(item);
+            assertThat(recovered.findByTag("classic")).containsExactly(item);
+            assertThat(recovered.save(new Item("Next", "Desc")).getId()).isEqualTo(3L);
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay deleteAll and restart ids from one")
+    void testRecoverDeleteAll() throws IOException {
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.OS)) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal);
+            repository.saveAll(List.of(new Item("One", "Desc"), new Item("Two", "Desc")));
+            repository.deleteAll();
+            repository.save(new Item("Three", "Desc"));
+        }
+
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.OS)) {
+            InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(wal);
+
+            assertThat(recovered.findAll()).extracting(Item::getTitle).containsExactly("Three");
+            assertThat(recovered.findById(1L)).isPresent();
+        }
+    }
+
+    @Test
+    @DisplayName("Should discard a torn record at the tail of the log")
+    void testTornTail() throws IOException {
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            new InMemoryQuoteRepository(wal).save(new Item("Intact", "Desc"));
+        }
+        Files.write(dir.resolve("quotes.wal"), new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            InMemoryQuoteRepository recovered = new InMemoryQuoteRepository(wal);
+            recovered.save(new Item("After", "Desc"));
+
+            assertThat(recovered.findAll()).extracting(Item::getTitle)
+                    .containsExactlyInAnyOrder("Intact", "After");
+        }
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            assertThat(new InMemoryQuoteRepository(wal).count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    @DisplayName("Should group-commit concurrent writers without losing records")
+    void testConcurrentGroupCommit() throws Exception {
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal);
+            ExecutorService writers = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 400; i++) {
+                int n = i;
+                writers.submit(() -> repository.save(new Item("Quote " + n, "Desc")));
+            }
+            writers.shutdown();
+            assertThat(writers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        try (WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.ALWAYS)) {
+            assertThat(new InMemoryQuoteRepository(wal).count()).isEqualTo(400);
+        }
+    }
+
+    @Test
+    @DisplayName("A write the log could not record should never become visible")
+    void testFailedAppendLeavesStoreUnchanged() throws IOException {
+        WriteAheadLog wal = open(WriteAheadLog.FsyncPolicy.ALWAYS);
+        InMemoryQuoteRepository repository = new InMemoryQuoteRepository(wal);
+        Item kept = repository.save(new Item("Kept", "Desc"));
+        wal.close();
+
+        assertThatThrownBy(() -> repository.save(new Item("Lost", "Desc")))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThatThrownBy(() -> repository.deleteById(kept.getId()))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(repository.findAll()).extracting(Item::getTitle).containsExactly("Kept");
+    }
+}
@@ -0,0 +1,122 @@
+package edu.trincoll.repository.sketch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SketchTest {
+
+    @Test
+    @DisplayName("HyperLogLog should stay within its error bound of the exact distinct count")
+    void testHyperLogLogAccuracy() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int distinct : new int[] {10, 1_000, 50_000, 300_000}) {
+            sketch.clear();
+            for (int i = 0; i < distinct; i++) {
+                sketch.add("author-" + i);
+                sketch.add("author-" + i);
+            }
+            Estimate estimate = sketch.toEstimate();
+
+            assertThat(estimate.value()).isCloseTo(distinct, within(Math.max(1, estimate.errorBound())));
+        }
+    }
+
+    @Test
+    @DisplayName("Count-Min should never undercount and overcount by at most its bound")
+    void testCountMinAccuracy() {
+        CountMinSketch sketch = new CountMinSketch(0.001, 0.01);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // skewed towards low numbers, like real tag usage
+            String tag = "tag-" + (int) Math.pow(random.nextInt(10_000), 2) / 1_000;
+            long delta = exact.getOrDefault(tag, 0L) > 0 && random.nextInt(4) == 0 ? -1 : 1;
+            sketch.add(tag, delta);
+            exact.merge(tag, delta, Long::sum);
+        }
+
+        int outside = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            Estimate estimate = sketch.toEstimate(entry.getKey());
+            assertThat(estimate.value()).isGreaterThanOrEqualTo(entry.getValue());
+            if (estimate.value() - entry.getValue() > estimate.errorBound()) {
+                outside++;
+            }
+        }
+        assertThat(outside).isLessThanOrEqualTo((int) Math.ceil(exact.size() * 0.01));
+        assertThat(sketch.estimate("never-added")).isLessThanOrEqualTo(sketch.toEstimate("x").errorBound());
+    }
+
+    @Test
+    @DisplayName("Space-Saving should monitor every heavy hitter and overcount by at most its error")
+    void testSpaceSavingHeavyHitters() {
+        SpaceSaving summary = new SpaceSaving(50);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        long total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // a few keys take most of the references, the rest are spread thin
+            int key = random.nextInt(4) == 0 ? random.nextInt(10) : 10 + random.nextInt(20_000);
+            summary.add(key, 1);
+            exact.merge(key, 1L, Long::sum);
+            total++;
+        }
+
+        for (Map.Entry<Integer, Long> entry : exact.entrySet()) {
+            if (entry.getValue() > total / 50) {
+                assertThat(summary.keys()).contains(entry.getKey());
+            }
+        }
+        for (int key : summary.keys()) {
+            Estimate estimate = summary.toEstimate(key);
+            long count = exact.getOrDefault(key, 0L);
+            assertThat(estimate.value()).isGreaterThanOrEqualTo(count);
+            assertThat(estimate.value() - estimate.errorBound()).isLessThanOrEqualTo(count);
+        }
+        assertThat(summary.keys()).hasSize(50);
+    }
+
+    @Test
+    @DisplayName("Should reject parameters outside their ranges")
+    void testInvalidParameters() {
+        assertThatThrownBy(() -> new HyperLogLog(2)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CountMinSketch(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SpaceSaving(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CountMinSketch(0.01, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Counting Bloom filter should have no false negatives and few false positives")
+    void testCountingBloomFilter() {
+        CountingBloomFilter filter = new CountingBloomFilter(100_000);
+        for (long key = 0; key < 100_000; key++) {
+            filter.add(key);
+        }
+        for (long key = 0; key < 50_000; key++) {
+            filter.remove(key);
+        }
+
+        for (long key = 50_000; key < 100_000; key++) {
+            assertThat(filter.mightContain(key)).isTrue();
+        }
+        int falsePositives = 0;
+        for (long key = 0; key < 50_000; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        for (long key = 1_000_000; key < 1_100_000; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(150_000 / 100);
+        assertThat(filter.isOverCapacity()).isFalse();
+    }
+}
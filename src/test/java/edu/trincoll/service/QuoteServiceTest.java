@@ -73,6 +73,17 @@ class QuoteServiceTest {
                     .hasMessageContaining("cannot exceed 100 characters");
         }
         
+        @Test
+        @DisplayName("Should reject a NaN rating")
+        void testValidateNaNRating() {
+            Item item = new Item("Title", "Description");
+            item.setRating(Double.NaN);
+            
+            assertThatThrownBy(() -> service.validateEntity(item))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Rating must be between 0 and 5");
+        }
+        
         @Test
         @DisplayName("Should accept valid item")
         void testValidateValidItem() {
@@ -254,6 +265,68 @@ class QuoteServiceTest {
                     .contains("Work Task 1", "Work Task 2");
         }
         
+        @Test
+        @DisplayName("Should rank search results by relevance")
+        void testSearchRanking() {
+            Item focused = new Item("Work work work", "All about work");
+            focused.setCategory("Work");
+            service.save(focused);
+            
+            List<Item> results = service.search("work");
+            
+            assertThat(results).hasSize(4);
+            assertThat(results.get(0).getTitle()).isEqualTo("Work work work");
+        }
+        
+        @Test
+        @DisplayName("Should cut search results off at the limit")
+        void testSearchLimit() {
+            assertThat(service.search("work", 2)).hasSize(2);
+            assertThatThrownBy(() -> service.search("work", 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        
+        @Test
+        @DisplayName("Should search by author and complete the last word as a prefix")
+        void testSearchAuthorAndPrefix() {
+            Item quote = new Item("Meditations", "The obstacle is the way");
+            quote.setAuthor("Marcus Aurelius");
+            service.save(quote);
+            
+            assertThat(service.search("aurelius")).containsExactly(quote);
+            assertThat(service.search("obstacle wa")).containsExactly(quote);
+            assertThat(service.search("meditat")).containsExactly(quote);
+        }
+        
+        @Test
+        @DisplayName("Should keep search results in line with updates and deletes")
+        void testSearchFollowsWrites() {
+            Item quote = new Item("Ephemeral", "Soon gone");
+            service.save(quote);
+            quote.setTitle("Permanent");
+            service.save(quote);
+            
+            assertThat(service.search("ephemeral")).isEmpty();
+            assertThat(service.search("permanent")).containsExactly(quote);
+            
+            service.deleteById(quote.getId());
+            
+            assertThat(service.search("permanent")).isEmpty();
+        }
+        
+        @Test
+        @DisplayName("Should get top rated quotes")
+        void testGetTopRated() {
+            Item best = new Item("Best", "Desc");
+            best.setRating(5.0);
+            service.save(best);
+            
+            assertThat(service.getTopRated(1)).containsExactly(best);
+            assertThat(service.findByMinRating(4.0)).containsExactly(best);
+            assertThatThrownBy(() -> service.getTopRated(0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        
         @Test
         @DisplayName("Should archive inactive items")
         void testArchiveInactiveItems() {